@@ -0,0 +1,207 @@
+//********************************************************************
+//  Benchmark.java              @version 1.03
+//    Micro-benchmarks for the simulation core.
+//    Each is warmed up, then timed over several rounds; reports 
+//    time and heap bytes allocated per operation (this thread).
+//    Run: java Benchmark [secondsPerRound]
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+public class Benchmark {
+
+	//-----------------------------------------------------------------
+	//  Constants
+	//-----------------------------------------------------------------
+	static final int WARMUP_ROUNDS = 3;
+	static final int MEASURE_ROUNDS = 5;
+	static final long MASTER_SEED = 2012;
+
+	//-----------------------------------------------------------------
+	//  Fields
+	//-----------------------------------------------------------------
+	double secondsPerRound = 1.0;
+	long sink;    // Keeps results live
+
+	// Allocation counter for current thread (HotSpot only)
+	static final com.sun.management.ThreadMXBean THREADS = 
+		(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	//-----------------------------------------------------------------
+	//  One benchmark body: run given number of operations
+	//-----------------------------------------------------------------
+	interface Body {
+		void run (long ops);
+	}
+
+	//-----------------------------------------------------------------
+	//  Measure one benchmark and print a result line
+	//-----------------------------------------------------------------
+	void measure (String name, Body body) {
+		// Calibrate ops per round
+		long ops = 1;
+		while (true) {
+			long start = System.nanoTime();
+			body.run(ops);
+			if (System.nanoTime() - start > 1e8 || ops > (1L << 40)) break;
+			ops *= 2;
+		}
+		long start = System.nanoTime();
+		body.run(ops);
+		double nsPerOp = (double) (System.nanoTime() - start) / ops;
+		ops = Math.max(1, (long) (secondsPerRound * 1e9 / nsPerOp));
+
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			body.run(ops);
+		}
+		double best = Double.MAX_VALUE, total = 0;
+		long bytes = 0;
+		long tid = Thread.currentThread().getId();
+		for (int i = 0; i < MEASURE_ROUNDS; i++) {
+			long bytesStart = THREADS.getThreadAllocatedBytes(tid);
+			start = System.nanoTime();
+			body.run(ops);
+			double ns = (double) (System.nanoTime() - start) / ops;
+			bytes += THREADS.getThreadAllocatedBytes(tid) - bytesStart;
+			best = Math.min(best, ns);
+			total += ns;
+		}
+		double mean = total / MEASURE_ROUNDS;
+		System.out.printf("%-32s %12.1f %12.1f %14.0f %12.1f%n", name, mean, best,
+			1e9 / mean, (double) bytes / (ops * MEASURE_ROUNDS));
+	}
+
+	//-----------------------------------------------------------------
+	//  Run all benchmarks
+	//-----------------------------------------------------------------
+	public void runAll () {
+		System.out.printf("%-32s %12s %12s %14s %12s%n", 
+			"benchmark", "ns/op", "best ns/op", "ops/sec", "bytes/op");
+
+		// Deck shuffle
+		final Pile deck = new Pile(true);
+		final SplittableRandom random = new SplittableRandom(MASTER_SEED);
+		measure("Pile.shuffle", new Body() {
+			public void run (long ops) {
+				for (long i = 0; i < ops; i++) {
+					deck.shuffle(random);
+				}
+				sink += deck.getTopCard();
+			}
+		});
+
+		// Fresh deal
+		measure("GameState.setupNewGame", new Body() {
+			public void run (long ops) {
+				for (long i = 0; i < ops; i++) {
+					GameState game = new GameState(3, 3);
+					game.setupNewGame(GameState.gameSeed(MASTER_SEED, i));
+					sink += game.table(6).getTopCard();
+				}
+			}
+		});
+
+		// Copy and scrub (the old player view)
+		final GameState midGame = samplePosition(3, 3);
+		measure("GameState copy+scrubHiddenData", new Body() {
+			public void run (long ops) {
+				for (long i = 0; i < ops; i++) {
+					GameState copy = new GameState(midGame);
+					copy.scrubHiddenData();
+					sink += copy.deck().size();
+				}
+			}
+		});
+
+		// Packed position (for storing many positions)
+		final long[] packed = new long[PackedPosition.WORDS];
+		measure("PackedPosition encode+decode", new Body() {
+			public void run (long ops) {
+				for (long i = 0; i < ops; i++) {
+					PackedPosition.encode(midGame, packed, 0);
+					sink += PackedPosition.decode(packed, 0).getPass();
+				}
+			}
+		});
+
+		// Move generator
+		final int[] moves = new int[GameState.MAX_MOVES];
+		measure("GameState.generateMoves", new Body() {
+			public void run (long ops) {
+				for (long i = 0; i < ops; i++) {
+					sink += midGame.generateMoves(moves);
+				}
+			}
+		});
+
+		// Player decision (moves are accepted but not applied)
+		final PlayerView view = new PlayerView(midGame);
+		final PlayerComputer player = new PlayerComputer(new PlayerCallbacks() {
+			public PlayerView playerViewGame () { return view; }
+			public boolean playerMoveCall (int p1, int p2, int p3) {
+				sink += p1 + p2 + p3;
+				return true;
+			}
+			public Metrics playerMetrics () { return null; }
+		});
+		measure("PlayerComputer.askNextMove", new Body() {
+			public void run (long ops) {
+				for (long i = 0; i < ops; i++) {
+					player.askNextMove();
+				}
+			}
+		});
+
+		// Whole games, per ruleset in runGameSeries
+		int[][] rules = {{1, 1}, {3, 3}, {3, Integer.MAX_VALUE}, 
+			{1, Integer.MAX_VALUE}};
+		for (final int[] rule: rules) {
+			final GameServer server = new GameServer();
+			server.masterSeed = MASTER_SEED;
+			measure("runOneGame " + GameServer.ruleName(rule[0], rule[1]), 
+				new Body() {
+					long gameNum = 0;
+					public void run (long ops) {
+						sink += server.runGameBlock(rule[0], rule[1], 
+							(int) (gameNum % 1000000), (int) ops).getWins();
+						gameNum += ops;
+					}
+				});
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  A fixed mid-game position: play some moves with the computer
+	//-----------------------------------------------------------------
+	GameState samplePosition (int cardsDrawn, int maxPasses) {
+		final GameState game = new GameState(cardsDrawn, maxPasses);
+		game.setupNewGame(GameState.gameSeed(MASTER_SEED, 0));
+		final PlayerView view = new PlayerView(game);
+		PlayerComputer player = new PlayerComputer(new PlayerCallbacks() {
+			public PlayerView playerViewGame () { return view; }
+			public boolean playerMoveCall (int p1, int p2, int p3) {
+				return game.playerMoveCall(p1, p2, p3);
+			}
+			public Metrics playerMetrics () { return null; }
+		});
+		for (int i = 0; i < 30 && !game.isOver(); i++) {
+			player.askNextMove();
+		}
+		return game;
+	}
+
+	//-----------------------------------------------------------------
+	//  Main method
+	//-----------------------------------------------------------------
+	public static void main (String[] args) {
+		Benchmark bench = new Benchmark();
+		if (args.length > 0) {
+			bench.secondsPerRound = Double.parseDouble(args[0]);
+		}
+		bench.runAll();
+		if (bench.sink == 42) System.out.println();
+	}
+}
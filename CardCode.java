@@ -0,0 +1,100 @@
+//********************************************************************
+//  CardCode.java              @version 1.00
+//    Compact card encoding: one card packed into a single byte.
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+public final class CardCode {
+
+	//-----------------------------------------------------------------
+	//  Layout
+	//    Bits 0-3: rank (unknown = 0, A=1... J=11, Q=12, K=13)
+	//    Bits 4-6: suit (unknown = 0, S=1, H=2, D=3, C=4)
+	//    Bit 7:    face up
+	//  A scrubbed (unknown) card keeps only its face-up bit.
+	//-----------------------------------------------------------------
+	static final int RANK_MASK = 0x0F;
+	static final int SUIT_MASK = 0x70;
+	static final int SUIT_SHIFT = 4;
+	static final int FACE_UP = 0x80;
+	static final int BLACK_SUITS = (1 << 1) | (1 << 4);  // S, C
+	public static final int NUM_CARDS = 52;
+
+	static private final boolean VIEW_IN_DOS = false;
+
+	//-----------------------------------------------------------------
+	//  No instances
+	//-----------------------------------------------------------------
+	private CardCode () {}
+
+	//-----------------------------------------------------------------
+	//  Make a code
+	//-----------------------------------------------------------------
+	public static int make (int rank, int suit, boolean faceUp) {
+		assert(0 <= rank && rank <= 13);
+		assert(0 <= suit && suit <= 4);
+		return rank | (suit << SUIT_SHIFT) | (faceUp ? FACE_UP : 0);
+	}
+
+	//-----------------------------------------------------------------
+	//  Field accessors
+	//-----------------------------------------------------------------
+	public static int rank (int code) { return code & RANK_MASK; }
+	public static int suit (int code) { return (code & SUIT_MASK) >> SUIT_SHIFT; }
+	public static boolean isFaceUp (int code) { return (code & FACE_UP) != 0; }
+	public static boolean isBlack (int code) { 
+		return ((BLACK_SUITS >> suit(code)) & 1) != 0; 
+	}
+	public static boolean isKnown (int code) { return rank(code) != 0; }
+
+	//-----------------------------------------------------------------
+	//  Modifiers (return new code)
+	//-----------------------------------------------------------------
+	public static int faceUp (int code) { return code | FACE_UP; }
+	public static int faceDown (int code) { return code & ~FACE_UP; }
+	public static int scrub (int code) { return code & FACE_UP; }
+
+	//-----------------------------------------------------------------
+	//  Comparisons
+	//-----------------------------------------------------------------
+	public static boolean sameSuit (int a, int b) { 
+		return ((a ^ b) & SUIT_MASK) == 0; 
+	}
+	public static boolean sameColor (int a, int b) { 
+		return isBlack(a) == isBlack(b); 
+	}
+
+	//-----------------------------------------------------------------
+	//  Card identity in 0-51 (suit-major; ignores face-up bit)
+	//-----------------------------------------------------------------
+	public static int index (int code) {
+		assert(isKnown(code));
+		return (suit(code) - 1) * 13 + rank(code) - 1;
+	}
+
+	//-----------------------------------------------------------------
+	//  Face-down code for identity in 0-51
+	//-----------------------------------------------------------------
+	public static int fromIndex (int index) {
+		assert(0 <= index && index < NUM_CARDS);
+		return make(index % 13 + 1, index / 13 + 1, false);
+	}
+
+	//-----------------------------------------------------------------
+	//  String representation
+	//-----------------------------------------------------------------
+	public static String toString (int code) {
+		String s;
+		switch (rank(code)) {
+			default: s = Integer.toString(rank(code)); break;
+			case 10: s = "T"; break;
+			case 11: s = "J"; break;
+			case 12: s = "Q"; break;
+			case 13: s = "K"; break;
+			case 1:  s = "A"; break;
+		}
+		s += (char)(suit(code) + (VIEW_IN_DOS ? 2 : 0x265F));
+		return s;
+	}
+}
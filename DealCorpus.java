@@ -0,0 +1,349 @@
+//********************************************************************
+//  DealCorpus.java              @version 1.01
+//    Fixed set of deals in a memory-mapped file, by deal number.
+//    Each deal is a 52-byte record: card identities (0-51, see
+//    CardCode.index) in deck order, bottom first (so the last byte
+//    is the first card dealt). Reads are absolute, so any number
+//    of threads can share one corpus.
+//    Run: java DealCorpus seeds FILE MASTERSEED COUNT
+//                         ms FILE FIRSTDEAL COUNT
+//                         text FILE TEXTFILE
+//                         show FILE DEALNUM
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.SplittableRandom;
+
+public class DealCorpus {
+
+	//-----------------------------------------------------------------
+	//  Constants
+	//-----------------------------------------------------------------
+	static final int MAGIC = 0x4B444331;      // "KDC1"
+	static final int HEADER_SIZE = 64;
+	static final int RECORD_SIZE = CardCode.NUM_CARDS;
+	static final int SEGMENT_DEALS = 1 << 24; // Deals per mapping
+
+	// Numbering schemes (how deal numbers were made)
+	static final int SCHEME_SEEDS = 0;       // GameState.gameSeed()
+	static final int SCHEME_MICROSOFT = 1;   // MS FreeCell deal numbers
+	static final int SCHEME_TEXT = 2;        // Imported list
+	static final String[] SCHEME_NAMES = {"seeds", "Microsoft", "text"};
+
+	//-----------------------------------------------------------------
+	//  Fields
+	//-----------------------------------------------------------------
+	final long numDeals;
+	final int scheme;
+	final long firstNumber;       // Scheme number of deal 0
+	final MappedByteBuffer[] segments;
+	long contentHash;             // 0 until first asked for
+
+	//-----------------------------------------------------------------
+	//  Constructor (open existing file)
+	//-----------------------------------------------------------------
+	public DealCorpus (String fileName) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(fileName),
+			StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining() && channel.read(header) >= 0);
+			header.flip();
+			if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC
+					|| header.getInt() != RECORD_SIZE) {
+				throw new IOException("Not a deal corpus: " + fileName);
+			}
+			numDeals = header.getLong();
+			scheme = header.getInt();
+			firstNumber = header.getLong();
+			if (channel.size() < HEADER_SIZE + numDeals * RECORD_SIZE)
+				throw new IOException("Truncated deal corpus: " + fileName);
+
+			// Map in segments (one mapping is limited to 2 GB)
+			int numSegments = (int) ((numDeals + SEGMENT_DEALS - 1) / SEGMENT_DEALS);
+			segments = new MappedByteBuffer[numSegments];
+			for (int i = 0; i < numSegments; i++) {
+				long deals = Math.min(SEGMENT_DEALS, numDeals - (long) i * SEGMENT_DEALS);
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+					HEADER_SIZE + (long) i * SEGMENT_DEALS * RECORD_SIZE,
+					deals * RECORD_SIZE);
+			}
+		}
+		finally {
+			channel.close();    // Mappings stay valid
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Accessors
+	//-----------------------------------------------------------------
+	public long size () { return numDeals; }
+	public int getScheme () { return scheme; }
+	public long getFirstNumber () { return firstNumber; }
+
+	//-----------------------------------------------------------------
+	//  Hash of all deal records (FNV-1a; computed once, on demand)
+	//-----------------------------------------------------------------
+	public synchronized long getContentHash () {
+		if (contentHash == 0) {
+			long h = 0xCBF29CE484222325L;
+			for (ByteBuffer segment: segments) {
+				for (int i = 0; i < segment.capacity(); i++) {
+					h = (h ^ (segment.get(i) & 0xFF)) * 0x100000001B3L;
+				}
+			}
+			contentHash = (h == 0 ? 1 : h);
+		}
+		return contentHash;
+	}
+
+	//-----------------------------------------------------------------
+	//  Description of deal source, for result files: same deals,
+	//  same description, wherever the file is kept
+	//-----------------------------------------------------------------
+	public String describe () {
+		return "corpus of " + numDeals + " deals numbered by " 
+			+ SCHEME_NAMES[scheme] + " from " + firstNumber 
+			+ ", content " + Long.toHexString(getContentHash());
+	}
+
+	//-----------------------------------------------------------------
+	//  Fill pile with deck of given deal (face down, bottom first)
+	//-----------------------------------------------------------------
+	public void readDeal (long dealNum, Pile deck) {
+		if (dealNum < 0 || dealNum >= numDeals)
+			throw new IndexOutOfBoundsException("No deal " + dealNum);
+		ByteBuffer segment = segments[(int) (dealNum / SEGMENT_DEALS)];
+		int offset = (int) (dealNum % SEGMENT_DEALS) * RECORD_SIZE;
+		deck.clear();
+		for (int i = 0; i < RECORD_SIZE; i++) {
+			deck.add(CardCode.fromIndex(segment.get(offset + i)));
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Source of deals for writing a corpus
+	//-----------------------------------------------------------------
+	interface DealSource {
+		// Fill record with deal (card indices, bottom first);
+		// return false if no more deals
+		boolean next (byte[] record) throws IOException;
+	}
+
+	//-----------------------------------------------------------------
+	//  Write corpus file from a source; return number of deals
+	//-----------------------------------------------------------------
+	static long write (String fileName, int scheme, long firstNumber,
+			DealSource source) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(fileName),
+			StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+			buffer.position(HEADER_SIZE);
+			byte[] record = new byte[RECORD_SIZE];
+			long count = 0;
+			while (source.next(record)) {
+				checkDeal(record, count);
+				if (buffer.remaining() < RECORD_SIZE) {
+					buffer.flip();
+					while (buffer.hasRemaining()) channel.write(buffer);
+					buffer.clear();
+				}
+				buffer.put(record);
+				count++;
+			}
+			buffer.flip();
+			while (buffer.hasRemaining()) channel.write(buffer);
+
+			// Header last, once count is known
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(RECORD_SIZE).putLong(count)
+				.putInt(scheme).putLong(firstNumber);
+			header.clear();
+			channel.write(header, 0);
+			return count;
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Check record holds each card once
+	//-----------------------------------------------------------------
+	static void checkDeal (byte[] record, long dealNum) throws IOException {
+		long seen = 0;
+		for (byte b: record) {
+			if (b < 0 || b >= CardCode.NUM_CARDS || (seen & (1L << b)) != 0)
+				throw new IOException("Bad deal " + dealNum + ": not 52 different cards");
+			seen |= 1L << b;
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Deals as shuffled by setupNewGame from gameSeed(master, n)
+	//    (so corpus deal n is game n of a run with that seed)
+	//-----------------------------------------------------------------
+	static DealSource seedSource (final long masterSeed, final long count) {
+		return new DealSource() {
+			long n = 0;
+			public boolean next (byte[] record) {
+				if (n >= count) return false;
+				Pile deck = new Pile(true);
+				deck.shuffle(new SplittableRandom(GameState.gameSeed(masterSeed, n++)));
+				for (int i = 0; i < RECORD_SIZE; i++)
+					record[i] = (byte) CardCode.index(deck.get(i));
+				return true;
+			}
+		};
+	}
+
+	//-----------------------------------------------------------------
+	//  Microsoft FreeCell deal numbers (the common numbering)
+	//    The MS generator gives the order cards are dealt; they
+	//    are dealt to Klondike in that order (last byte first).
+	//-----------------------------------------------------------------
+	static DealSource microsoftSource (final long firstDeal, final long count) {
+		return new DealSource() {
+			long n = 0;
+			public boolean next (byte[] record) {
+				if (n >= count) return false;
+				int[] order = microsoftOrder(firstDeal + n++);
+				for (int k = 0; k < RECORD_SIZE; k++)
+					record[RECORD_SIZE-1 - k] = (byte) order[k];
+				return true;
+			}
+		};
+	}
+
+	//-----------------------------------------------------------------
+	//  Card indices in order dealt for MS deal number
+	//    MS cards are numbered rank-major in suit order C, D, H, S.
+	//-----------------------------------------------------------------
+	static int[] microsoftOrder (long dealNum) {
+		int[] deck = new int[RECORD_SIZE];
+		for (int i = 0; i < RECORD_SIZE; i++) deck[i] = i;
+		int[] msSuits = {4, 3, 2, 1};   // C, D, H, S as CardCode suits
+		int[] order = new int[RECORD_SIZE];
+		long seed = dealNum;
+		for (int left = RECORD_SIZE, k = 0; left > 0; left--, k++) {
+			seed = (seed * 214013 + 2531011) & 0x7FFFFFFF;
+			int pick = (int) ((seed >> 16) % left);
+			int ms = deck[pick];
+			deck[pick] = deck[left-1];
+			order[k] = CardCode.index(CardCode.make(ms / 4 + 1, msSuits[ms % 4], false));
+		}
+		return order;
+	}
+
+	//-----------------------------------------------------------------
+	//  Deals from text: one per line, 52 cards like "AS 2H TD" in
+	//  order dealt (blank lines and # comments skipped)
+	//-----------------------------------------------------------------
+	static DealSource textSource (final BufferedReader in) {
+		return new DealSource() {
+			int lineNum = 0;
+			public boolean next (byte[] record) throws IOException {
+				String line;
+				do {
+					line = in.readLine();
+					lineNum++;
+					if (line == null) return false;
+					line = line.trim();
+				} while (line.isEmpty() || line.startsWith("#"));
+				String[] cards = line.split("\\s+");
+				if (cards.length != RECORD_SIZE)
+					throw new IOException("Line " + lineNum + ": need 52 cards");
+				for (int k = 0; k < RECORD_SIZE; k++) {
+					int card = parseCard(cards[k]);
+					if (card < 0)
+						throw new IOException("Line " + lineNum + ": bad card " + cards[k]);
+					record[RECORD_SIZE-1 - k] = (byte) CardCode.index(card);
+				}
+				return true;
+			}
+		};
+	}
+
+	//-----------------------------------------------------------------
+	//  Parse card like "TD" (rank A23456789TJQK, suit SHDC); -1 if bad
+	//-----------------------------------------------------------------
+	static int parseCard (String s) {
+		if (s.length() != 2) return -1;
+		int rank = "A23456789TJQK".indexOf(Character.toUpperCase(s.charAt(0))) + 1;
+		int suit = "SHDC".indexOf(Character.toUpperCase(s.charAt(1))) + 1;
+		if (rank == 0 || suit == 0) return -1;
+		return CardCode.make(rank, suit, false);
+	}
+
+	//-----------------------------------------------------------------
+	//  Card as text (as parseCard reads it)
+	//-----------------------------------------------------------------
+	static String cardString (int card) {
+		return "" + "A23456789TJQK".charAt(CardCode.rank(card)-1)
+			+ "SHDC".charAt(CardCode.suit(card)-1);
+	}
+
+	//-----------------------------------------------------------------
+	//  Main method: build or show a corpus
+	//-----------------------------------------------------------------
+	public static void main (String[] args) {
+		try {
+			if (args.length == 4 && args[0].equals("seeds")) {
+				long n = write(args[1], SCHEME_SEEDS, Long.parseLong(args[2]),
+					seedSource(Long.parseLong(args[2]), Long.parseLong(args[3])));
+				System.out.println("Wrote " + n + " deals.");
+			}
+			else if (args.length == 4 && args[0].equals("ms")) {
+				long first = Long.parseLong(args[2]);
+				long n = write(args[1], SCHEME_MICROSOFT, first,
+					microsoftSource(first, Long.parseLong(args[3])));
+				System.out.println("Wrote " + n + " deals.");
+			}
+			else if (args.length == 3 && args[0].equals("text")) {
+				BufferedReader in = new BufferedReader(new FileReader(args[2]));
+				try {
+					long n = write(args[1], SCHEME_TEXT, 0, textSource(in));
+					System.out.println("Wrote " + n + " deals.");
+				}
+				finally {
+					in.close();
+				}
+			}
+			else if (args.length == 3 && args[0].equals("show")) {
+				DealCorpus corpus = new DealCorpus(args[1]);
+				long dealNum = Long.parseLong(args[2]);
+				System.out.println(corpus.size() + " deals, numbered by "
+					+ SCHEME_NAMES[corpus.getScheme()] + " from "
+					+ corpus.getFirstNumber());
+				Pile deck = new Pile();
+				corpus.readDeal(dealNum, deck);
+				StringBuilder s = new StringBuilder("Deal " + dealNum + ":");
+				for (int k = deck.size()-1; k >= 0; k--)
+					s.append(" " + cardString(deck.get(k)));
+				System.out.println(s);
+			}
+			else {
+				System.err.println("Usage: java DealCorpus seeds FILE MASTERSEED COUNT");
+				System.err.println("                        ms FILE FIRSTDEAL COUNT");
+				System.err.println("                        text FILE TEXTFILE");
+				System.err.println("                        show FILE DEALNUM");
+				System.exit(2);
+			}
+		}
+		catch (IOException exception) {
+			System.err.println("Error: " + exception.getMessage());
+			System.exit(1);
+		}
+		catch (NumberFormatException exception) {
+			System.err.println("Error: Bad number: " + exception.getMessage());
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,140 @@
+import java.io.*; 
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+//********************************************************************
+//  GameRecordReader.java              @version 1.00
+//    Reads game records written by GameRecorder, and replays them.
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+public class GameRecordReader {
+
+	//-----------------------------------------------------------------
+	//  Fields
+	//-----------------------------------------------------------------
+	FileChannel channel;
+	ByteBuffer buffer;
+
+	// Current record
+	long seed;
+	int cardsDrawn, maxPasses, numMoves;
+	boolean won;
+	byte[] moves = new byte[3 * 256];
+
+	//-----------------------------------------------------------------
+	//  Open and check header
+	//-----------------------------------------------------------------
+	public void open (String filename) throws IOException {
+		channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+		buffer = ByteBuffer.allocateDirect(GameRecorder.BUFFER_SIZE);
+		buffer.flip();
+		if (!fill(4) || buffer.getInt() != GameRecorder.MAGIC) {
+			throw new IOException("Not a game record file: " + filename);
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Close
+	//-----------------------------------------------------------------
+	public void close () throws IOException {
+		channel.close();
+	}
+
+	//-----------------------------------------------------------------
+	//  Read next record; return false at end of file
+	//-----------------------------------------------------------------
+	public boolean next () throws IOException {
+		if (!fill(GameRecorder.RECORD_HEADER)) {
+			if (buffer.hasRemaining()) 
+				throw new EOFException("Truncated game record");
+			return false;
+		}
+		seed = buffer.getLong();
+		cardsDrawn = buffer.get();
+		maxPasses = buffer.getInt();
+		won = (buffer.get() != 0);
+		numMoves = buffer.getInt();
+		if (3 * numMoves > moves.length) {
+			moves = new byte[3 * numMoves];
+		}
+		int done = 0;
+		while (done < 3 * numMoves) {
+			if (!fill(1)) 
+				throw new EOFException("Truncated game record");
+			int chunk = Math.min(buffer.remaining(), 3 * numMoves - done);
+			buffer.get(moves, done, chunk);
+			done += chunk;
+		}
+		return true;
+	}
+
+	//-----------------------------------------------------------------
+	//  Ensure buffer holds given bytes; return false if not available
+	//-----------------------------------------------------------------
+	boolean fill (int needed) throws IOException {
+		if (buffer.remaining() >= needed) return true;
+		buffer.compact();
+		while (buffer.position() < needed) {
+			if (channel.read(buffer) < 0) break;
+		}
+		buffer.flip();
+		return buffer.remaining() >= needed;
+	}
+
+	//-----------------------------------------------------------------
+	//  Record accessors
+	//-----------------------------------------------------------------
+	public long getSeed () { return seed; }
+	public int getCardsDrawn () { return cardsDrawn; }
+	public int getMaxPasses () { return maxPasses; }
+	public boolean isWon () { return won; }
+	public int getNumMoves () { return numMoves; }
+	public int getMove (int i, int param) {
+		return GameRecorder.decodeParam(moves[3 * i + param]);
+	}
+
+	//-----------------------------------------------------------------
+	//  Replay current record into a new game state
+	//-----------------------------------------------------------------
+	public GameState replay () {
+		return replay(numMoves);
+	}
+
+	//-----------------------------------------------------------------
+	//  Replay first given moves of current record
+	//-----------------------------------------------------------------
+	public GameState replay (int uptoMove) {
+		GameState game = new GameState(cardsDrawn, maxPasses);
+		game.setupNewGame(seed);
+		for (int i = 0; i < uptoMove; i++) {
+			game.playerMoveCall(getMove(i, 0), getMove(i, 1), getMove(i, 2));
+		}
+		return game;
+	}
+
+	//-----------------------------------------------------------------
+	//  Main: replay every record in a file and check outcomes
+	//-----------------------------------------------------------------
+	public static void main (String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: java GameRecordReader file");
+			return;
+		}
+		GameRecordReader reader = new GameRecordReader();
+		reader.open(args[0]);
+		long numRecords = 0, numWins = 0, numMismatch = 0;
+		while (reader.next()) {
+			GameState game = reader.replay();
+			numRecords++;
+			if (reader.isWon()) numWins++;
+			if (game.isGameWon() != reader.isWon() || !game.isOver()) 
+				numMismatch++;
+		}
+		reader.close();
+		System.out.println("Records: " + numRecords + ", won: " + numWins 
+			+ ", replay mismatches: " + numMismatch);
+	}
+}
@@ -0,0 +1,143 @@
+import java.io.*; 
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+
+//********************************************************************
+//  GameRecorder.java              @version 1.01
+//    Streams game records to an append-only binary file.
+//    One recorder is shared by all game threads of a run.
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+public class GameRecorder {
+
+	//-----------------------------------------------------------------
+	//  File format (big-endian)
+	//    File header: int MAGIC
+	//    Each record: long seed, byte cardsDrawn, int maxPasses,
+	//      byte won (0/1), int numMoves, then numMoves x 3 bytes
+	//      (p1, p2, p3 as passed to playerMoveCall)
+	//  Move parameters outside 0-254 are stored as 255, which is 
+	//  never a legal value, so replays reject them just the same.
+	//-----------------------------------------------------------------
+	static final int MAGIC = 0x4B475231;   // "KGR1"
+	static final int RECORD_HEADER = 18;
+	static final int BAD_PARAM = 255;
+	static final int BUFFER_SIZE = 1 << 20;
+
+	//-----------------------------------------------------------------
+	//  Fields
+	//-----------------------------------------------------------------
+	FileChannel channel;
+	ByteBuffer buffer;
+
+	//-----------------------------------------------------------------
+	//  Open (append to file, writing header if new; an existing
+	//  file must be a game record file)
+	//-----------------------------------------------------------------
+	public void open (String filename) throws IOException {
+		Path path = Paths.get(filename);
+		if (Files.exists(path) && Files.size(path) > 0) {
+			DataInputStream in = new DataInputStream(Files.newInputStream(path));
+			try {
+				if (in.readInt() != MAGIC)
+					throw new IOException("Not a game record file: " + filename);
+			}
+			catch (EOFException exception) {
+				throw new IOException("Not a game record file: " + filename);
+			}
+			finally {
+				in.close();
+			}
+		}
+		channel = FileChannel.open(path, 
+			StandardOpenOption.CREATE, StandardOpenOption.WRITE, 
+			StandardOpenOption.APPEND);
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		if (channel.size() == 0) {
+			buffer.putInt(MAGIC);
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Close (flushing buffer)
+	//-----------------------------------------------------------------
+	public synchronized void close () throws IOException {
+		flush();
+		channel.close();
+	}
+
+	//-----------------------------------------------------------------
+	//  Write one game record
+	//    Moves are packed 3 bytes each, as from encodeMove()
+	//-----------------------------------------------------------------
+	public synchronized void write (long seed, int cardsDrawn, int maxPasses,
+			boolean won, byte[] moves, int numMoves) throws IOException {
+		int length = RECORD_HEADER + 3 * numMoves;
+		if (buffer.remaining() < length) {
+			flush();
+		}
+		if (buffer.remaining() < length) {
+
+			// Oversize record: write through directly
+			ByteBuffer big = ByteBuffer.allocate(length);
+			putRecord(big, seed, cardsDrawn, maxPasses, won, moves, numMoves);
+			big.flip();
+			while (big.hasRemaining()) 
+				channel.write(big);
+			return;
+		}
+		putRecord(buffer, seed, cardsDrawn, maxPasses, won, moves, numMoves);
+	}
+
+	//-----------------------------------------------------------------
+	//  Put record fields in buffer
+	//-----------------------------------------------------------------
+	void putRecord (ByteBuffer out, long seed, int cardsDrawn, 
+			int maxPasses, boolean won, byte[] moves, int numMoves) {
+		out.putLong(seed);
+		out.put((byte) cardsDrawn);
+		out.putInt(maxPasses);
+		out.put((byte) (won ? 1 : 0));
+		out.putInt(numMoves);
+		out.put(moves, 0, 3 * numMoves);
+	}
+
+	//-----------------------------------------------------------------
+	//  Flush buffer to file
+	//-----------------------------------------------------------------
+	void flush () throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) 
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	//-----------------------------------------------------------------
+	//  Encode move call at given move number into byte array
+	//    (returns array, grown if needed)
+	//-----------------------------------------------------------------
+	public static byte[] encodeMove (byte[] moves, int moveNum, 
+			int p1, int p2, int p3) {
+		if (3 * moveNum + 3 > moves.length) {
+			moves = Arrays.copyOf(moves, 2 * moves.length + 3);
+		}
+		moves[3 * moveNum] = encodeParam(p1);
+		moves[3 * moveNum + 1] = encodeParam(p2);
+		moves[3 * moveNum + 2] = encodeParam(p3);
+		return moves;
+	}
+
+	//-----------------------------------------------------------------
+	//  Encode/decode one move parameter
+	//-----------------------------------------------------------------
+	static byte encodeParam (int p) {
+		return (byte) (0 <= p && p < BAD_PARAM ? p : BAD_PARAM);
+	}
+	static int decodeParam (byte b) {
+		return b & 0xFF;
+	}
+}
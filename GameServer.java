@@ -1,151 +1,836 @@
-import java.awt.Toolkit;
-import java.text.DecimalFormat;
-import java.io.*; 
-
-//********************************************************************
-//  GameServer.java              @version 1.08
-//    Game server for the solitaire game.
-//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
-//  See the bottom of this file for any licensing information.
-//********************************************************************
-
-public class GameServer implements PlayerCallbacks {
-
-   //--------------------------------------------------------------------------
-   //  Constants
-   //--------------------------------------------------------------------------
-
-	// Maximal margin-of-error for given number of games:
-	// 1K: 3%, 10K:1%; 100K: 0.3%; 1M: 0.1% (95% confidence)
-	// Approx. 500 games/sec on P4 1.6Ghz
-
-	final int NUM_GAMES = 100000;
-	final int CRIT_MOVES = 995;
-	final int MAX_MOVES = 1000;
-	final int PROGBAR_SIZE = 50;
-	final boolean VIEW_GAMES = false;
-	final boolean SHOW_PROGBAR = true;
-
-   //--------------------------------------------------------------------------
-   //  Fields
-   //--------------------------------------------------------------------------
-
-	GameState game;
-	ViewerInterface view;
-	PlayerInterface player;
-
-   //--------------------------------------------------------------------------
-   //  Methods
-   //--------------------------------------------------------------------------
-
-	/**
-	*  Run series of different game options.
-	*/
-	public void runGameSeries () {
-		System.out.println("Number of games: " + NUM_GAMES);
-		runManyGames(1, 1);
-		runManyGames(3, 3);
-		runManyGames(3, Integer.MAX_VALUE);
-		runManyGames(1, Integer.MAX_VALUE);
-	}
-
-	/**
-	*  Run many games.
-	*/
-	public void runManyGames (int cardsDrawn, int maxPasses) {
-		int numWins = 0;
-		int progBarCount = 0;
-		int progBarInc = NUM_GAMES/PROGBAR_SIZE;
-		if (SHOW_PROGBAR) {
-	 		for (int i = 0; i < PROGBAR_SIZE; i++)
- 				System.out.print(".");
-			System.out.println();
-		}
-		for (int i = 0; i < NUM_GAMES; i++) {
-			boolean won = runOneGame(cardsDrawn, maxPasses);
-			if (won) numWins++;
-			if (SHOW_PROGBAR) {
-	 			progBarCount++;
- 				if (progBarCount >= progBarInc) {
- 					progBarCount = 0;
- 					System.out.print("=");			
- 				}
-			}
-		}
-		if (SHOW_PROGBAR)
-			System.out.println();
-		double percent = (double) numWins/NUM_GAMES * 100;
-		System.out.print("Draw " + cardsDrawn);
-		System.out.print(", pass " + 
-			(maxPasses < Integer.MAX_VALUE ? maxPasses : "inf"));
-		DecimalFormat df = new DecimalFormat("#0.0");
-		System.out.println(": won " + df.format(percent) + "%");
-	}
-
-	/**
-	*  Run one game; return if game won.
-	*/
-	public boolean runOneGame (int cardsDrawn, int maxPasses) {
-		game = new GameState(cardsDrawn, maxPasses);
-		game.setupNewGame();
-		view = new ViewerText();
-		try {
-			view.open();
-		}
-		catch (IOException exception) {
-			System.err.println("Error: Could not open game viewer.");
-			return false;		
-		}
-		player = new PlayerComputer(this);
-		int numMoves = 0;
-		while (!game.isOver()) {
-			if (VIEW_GAMES) {
-				view.update(game);
-//				Thread.sleep(2000);
-			}
-			player.askNextMove();
-			numMoves++;
-
-			// Move cap warning/limit
-			if (numMoves > CRIT_MOVES) {
-				System.out.println();
-				view.update(game);
-			}
-			if (numMoves > MAX_MOVES) {
-				game.handleMoveSurrender(0, 0);
-			}
-		}
-		view.close();
-		return game.isGameWon();
-	}
-
-	/**
-	*  Player view game: return scrubbed copy of game state.
-	*/
-	public GameState playerViewGame () {
-		GameState scrubCopy = new GameState(game);
-		scrubCopy.scrubHiddenData();
-		return scrubCopy;
-	}
-	
-	/**
-	*  Player move callback: delegate to game object.
-	*/
-	public boolean playerMoveCall (int p1, int p2, int p3) {
-		boolean retval = game.playerMoveCall(p1, p2, p3);
-		if (!retval) {
-			System.err.println("Warning: Rejected move call."); 
-		}
-		return retval;
-	}	
-	
-	/**
-	*  Main method.
-	*/
-	public static void main (String[] args) {
-		GameServer server = new GameServer();	
-		server.runGameSeries();
-		Toolkit.getDefaultToolkit().beep();			
-	}
-}
-
+import java.text.DecimalFormat;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.io.*; 
+
+//********************************************************************
+//  GameServer.java              @version 1.28
+//    Game server for the solitaire game.
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+public class GameServer implements PlayerCallbacks {
+
+   //--------------------------------------------------------------------------
+   //  Constants
+   //--------------------------------------------------------------------------
+
+	// Maximal margin-of-error for given number of games:
+	// 1K: 3%, 10K:1%; 100K: 0.3%; 1M: 0.1% (95% confidence)
+	// Approx. 500 games/sec on P4 1.6Ghz (single thread)
+	// Run settings (game counts, rulesets, sinks) are in RunConfig.
+
+	final int BLOCK_SIZE = 1000;
+	final int PROGBAR_SIZE = 50;
+	final double CONFIDENCE_Z = RunStats.Z_95;
+
+   //--------------------------------------------------------------------------
+   //  Fields
+   //--------------------------------------------------------------------------
+
+	RunConfig config;
+	GameState game;
+	PlayerView playerView;
+	ViewerInterface view;
+	PlayerInterface player;
+	PlayerFactory playerFactory;
+	GameRecorder recorder;        // Null if not recording
+	Metrics metrics;              // Null if not collecting
+	ScheduledExecutorService snapshots;
+
+	// Move calls of current game (for recorder)
+	byte[] moveLog = new byte[3 * 256];
+	int numLogged;
+
+	// Positions seen in current game (for loop detection)
+	LongHashSet positions = new LongHashSet(1024);
+
+	// Game N of every ruleset is dealt from (masterSeed, N),
+	// or is deal N of the corpus if there is one
+	long masterSeed;
+	DealCorpus corpus;
+
+	// Results of games played on this instance
+	RunStats stats = new RunStats();
+
+	// Results of whole run by ruleset (for result file, checkpoint)
+	ResultFile results;
+	long lastCheckpoint = System.nanoTime();
+
+	// Players for paired comparison (each plays every deal)
+	PlayerFactory[] comparePlayers;
+
+	// Known solver results (null if not kept)
+	SolveCache solveCache;
+
+	// Positions seen, shared by solver threads (null if not shared)
+	TranspositionTable solveTable;
+
+	// Set to stop blocks still running (shared by their workers)
+	AtomicBoolean stopBlocks;
+
+   //--------------------------------------------------------------------------
+   //  Constructors
+   //--------------------------------------------------------------------------
+
+	/**
+	*  Constructor (default settings).
+	*/
+	public GameServer () {
+		this(new RunConfig());
+	}
+
+	/**
+	*  Constructor (given settings).
+	*/
+	public GameServer (RunConfig config) {
+		this.config = config;
+		masterSeed = config.masterSeed;
+		playerFactory = config.player;
+		comparePlayers = config.comparePlayers;
+	}
+
+   //--------------------------------------------------------------------------
+   //  Methods
+   //--------------------------------------------------------------------------
+
+	/**
+	*  Run the series for the configured mode.
+	*/
+	public void run () {
+		if (config.corpusFile != null && !openCorpus()) return;
+		if (config.mode == RunConfig.MODE_SOLVE)
+			runSolveSeries();
+		else if (config.mode == RunConfig.MODE_COMPARE)
+			runCompareSeries();
+		else
+			runGameSeries();
+	}
+
+	/**
+	*  Open deal corpus; return if successful.
+	*/
+	boolean openCorpus () {
+		try {
+			corpus = new DealCorpus(config.corpusFile);
+		}
+		catch (IOException exception) {
+			System.err.println("Error: Could not open corpus: " + exception.getMessage());
+			return false;
+		}
+		if (config.numGames > corpus.size()) {
+			System.err.println("Error: Corpus has only " + corpus.size() + " deals.");
+			return false;
+		}
+		System.out.println("Corpus: " + config.corpusFile + " (numbered by " 
+			+ DealCorpus.SCHEME_NAMES[corpus.getScheme()] + " from " 
+			+ corpus.getFirstNumber() + ")");
+		return true;
+	}
+
+	/**
+	*  Deal game number N (from corpus, if any, else master seed).
+	*/
+	static GameState newDeal (long masterSeed, DealCorpus corpus, 
+			int cardsDrawn, int maxPasses, int gameNum) {
+		GameState deal = new GameState(cardsDrawn, maxPasses);
+		if (corpus != null)
+			deal.setupNewGame(corpus, gameNum);
+		else
+			deal.setupNewGame(GameState.gameSeed(masterSeed, gameNum));
+		return deal;
+	}
+
+	/**
+	*  Source of deals, as kept in result files.
+	*/
+	String dealSource () {
+		return corpus != null ? corpus.describe() : ResultFile.SEEDED;
+	}
+
+	/**
+	*  Run series of different game options.
+	*/
+	public void runGameSeries () {
+		results = new ResultFile(masterSeed, dealSource(), playerFactory.getName());
+		if (config.resume && !loadCheckpoint()) return;
+		System.out.println("Number of games: " + config.numGames);
+		System.out.println("Master seed: " + masterSeed);
+		System.out.println("Player: " + playerFactory.getName());
+		if (config.numShards > 1)
+			System.out.println("Shard " + config.shardIndex + " of " + config.numShards 
+				+ ": games " + config.firstGame() + "-" + (config.endGame()-1));
+		if (!openRun()) return;
+		for (int[] rule: config.rules)
+			runManyGames(rule[0], rule[1]);
+		closeRun();
+		if (config.resultFile != null) {
+			try {
+				results.write(config.resultFile);
+			}
+			catch (IOException exception) {
+				System.err.println("Error: Could not write result file.");
+			}
+		}
+	}
+
+	/**
+	*  Load results so far from checkpoint; return if successful.
+	*    (Run continues with the checkpoint's master seed.)
+	*/
+	boolean loadCheckpoint () {
+		try {
+			ResultFile saved = ResultFile.read(config.checkpointFile);
+			long seed = config.seedGiven ? masterSeed : saved.masterSeed;
+			if (!saved.isSameRun(seed, dealSource(), playerFactory.getName())) {
+				System.err.println("Error: Checkpoint is from a different run.");
+				return false;
+			}
+			masterSeed = saved.masterSeed;
+			results = saved;
+			return true;
+		}
+		catch (IOException exception) {
+			System.err.println("Error: Could not read checkpoint: " 
+				+ exception.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	*  Write checkpoint of results so far (replaces old one atomically).
+	*/
+	void writeCheckpoint () {
+		try {
+			results.write(config.checkpointFile);
+		}
+		catch (IOException exception) {
+			System.err.println("Error: Could not write checkpoint.");
+		}
+		lastCheckpoint = System.nanoTime();
+	}
+
+	/**
+	*  Open viewer and recorder for a whole run; return if successful.
+	*    (No-op viewer unless games are being viewed.)
+	*/
+	boolean openRun () {
+		view = config.viewGames ? new ViewerText() : new ViewerNull();
+		try {
+			view.open();
+		}
+		catch (IOException exception) {
+			System.err.println("Error: Could not open game viewer.");
+			view = null;
+			return false;		
+		}
+		if (config.recordFile != null) {
+			recorder = new GameRecorder();
+			try {
+				recorder.open(config.recordFile);
+			}
+			catch (IOException exception) {
+				System.err.println("Error: Could not open game recorder: " 
+					+ exception.getMessage());
+				recorder = null;
+				closeRun();
+				return false;		
+			}
+		}
+		if (config.metricsFile != null) {
+			metrics = new Metrics();
+			snapshots = Executors.newSingleThreadScheduledExecutor();
+			snapshots.scheduleAtFixedRate(new Runnable() {
+				public void run () { writeMetrics(false); }
+			}, config.metricsPeriodSecs, config.metricsPeriodSecs, TimeUnit.SECONDS);
+		}
+		return true;
+	}
+
+	/**
+	*  Append metrics snapshot to file.
+	*/
+	void writeMetrics (boolean isFinal) {
+		try {
+			metrics.writeSnapshot(config.metricsFile, isFinal);
+		}
+		catch (IOException exception) {
+			System.err.println("Error: Could not write metrics.");
+		}
+	}
+
+	/**
+	*  Close viewer and recorder at end of run.
+	*/
+	void closeRun () {
+		view.close();
+		view = null;
+		if (recorder != null) {
+			try {
+				recorder.close();
+			}
+			catch (IOException exception) {
+				System.err.println("Error: Could not close game recorder.");
+			}
+			recorder = null;
+		}
+		if (metrics != null) {
+			snapshots.shutdownNow();
+			snapshots = null;
+			writeMetrics(true);
+			metrics = null;
+		}
+	}
+
+	/**
+	*  Run many games.
+	*    Games are split into fixed blocks and played in parallel;
+	*    each block gets its own server instance (game, player) 
+	*    sharing the run's viewer and recorder, and block stats are 
+	*    merged in block order (so early stopping is reproducible).
+	*/
+	public void runManyGames (int cardsDrawn, int maxPasses) {
+		boolean ownRun = (view == null);
+		if (ownRun && !openRun()) return;
+		if (ownRun) 
+			results = new ResultFile(masterSeed, dealSource(), playerFactory.getName());
+		try {
+			runManyGamesOnRun(cardsDrawn, maxPasses);
+		}
+		finally {
+			if (ownRun) closeRun();
+		}
+	}
+
+	/**
+	*  Run many games on the open viewer and recorder.
+	*    (This shard's games only, added to run results block by 
+	*    block; skips games the results already hold from a 
+	*    resumed checkpoint.)
+	*/
+	void runManyGamesOnRun (int cardsDrawn, int maxPasses) {
+		ResultFile.Entry entry = results.getEntry(cardsDrawn, maxPasses);
+		RunStats total = entry.stats;
+		int firstGame = config.firstGame();
+		int endGame = config.endGame();
+		int numGames = endGame - firstGame;
+		int startGame = firstGame;
+		if (!entry.ranges.isEmpty()) {
+			long[] held = entry.ranges.get(0);
+			startGame = (int) held[1];
+			if (entry.ranges.size() > 1 || held[0] != firstGame || held[1] > endGame
+					|| (startGame < endGame && (startGame - firstGame) % BLOCK_SIZE != 0)) {
+				System.err.println("Error: Results held do not match games of this run.");
+				return;
+			}
+		}
+		int progBarCount = startGame - firstGame;
+		int progBarInc = numGames/PROGBAR_SIZE;
+		if (config.showProgbar) {
+	 		for (int i = 0; i < PROGBAR_SIZE; i++)
+ 				System.out.print(".");
+			System.out.println();
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(config.numThreads);
+		stopBlocks = new AtomicBoolean();
+		Deque<Future<RunStats>> blocks = new ArrayDeque<Future<RunStats>>();
+		int nextStart = startGame;
+		try {
+			for (int start = startGame; start < endGame && !isConverged(total); 
+					start += BLOCK_SIZE) {
+				for (; nextStart < endGame && blocks.size() < maxBlocksAhead();
+						nextStart += BLOCK_SIZE) {
+					blocks.add(pool.submit(newGameBlock(cardsDrawn, maxPasses,
+						nextStart, Math.min(BLOCK_SIZE, endGame - nextStart))));
+				}
+				int end = Math.min(start + BLOCK_SIZE, endGame);
+				entry.add(start, end, blocks.remove().get());
+				if (config.checkpointFile != null && System.nanoTime() 
+						- lastCheckpoint > config.checkpointSecs * 1000000000L) {
+					writeCheckpoint();
+				}
+				if (config.showProgbar) {
+					progBarCount += end - start;
+					while (progBarInc > 0 && progBarCount >= progBarInc) {
+						progBarCount -= progBarInc;
+						System.out.print("=");			
+					}
+				}
+			}
+		}
+		catch (InterruptedException exception) {
+			System.err.println("Error: Interrupted while running games.");
+			return;
+		}
+		catch (ExecutionException exception) {
+			System.err.println("Error: Game block failed: " + exception.getCause());
+			return;
+		}
+		finally {
+			stopPool(pool);
+		}
+		if (config.checkpointFile != null)
+			writeCheckpoint();
+		if (config.showProgbar)
+			System.out.println();
+		System.out.println(ruleName(cardsDrawn, maxPasses) 
+			+ ": " + total.summary(CONFIDENCE_Z));
+		if (config.showHistograms)
+			System.out.println(total.histograms());
+	}
+
+	/**
+	*  Most blocks to have submitted but not yet merged.
+	*    (Enough to keep every thread busy; few, so that an early
+	*    stop leaves little work to abandon.)
+	*/
+	int maxBlocksAhead () {
+		return 2 * config.numThreads;
+	}
+
+	/**
+	*  Stop worker pool and wait until every block has ended.
+	*    Blocks still queued or running stop at their next game (a
+	*    solve block only if not yet started), so the viewer, 
+	*    recorder, metrics and solve cache they share may be closed 
+	*    once this returns. (Not by interrupt: that would close the 
+	*    recorder's channel under a worker writing to it.)
+	*/
+	void stopPool (ExecutorService pool) {
+		stopBlocks.set(true);
+		pool.shutdown();
+		boolean interrupted = false;
+		while (true) {
+			try {
+				if (pool.awaitTermination(1, TimeUnit.SECONDS)) break;
+			}
+			catch (InterruptedException exception) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+	}
+
+	/**
+	*  Has stats reached the target margin of error (if any)?
+	*/
+	boolean isConverged (RunStats total) {
+		return config.targetMargin > 0 
+			&& total.isConverged(config.targetMargin, CONFIDENCE_Z);
+	}
+
+	/**
+	*  Name of ruleset for reports.
+	*/
+	static String ruleName (int cardsDrawn, int maxPasses) {
+		return "Draw " + cardsDrawn + ", pass " + 
+			(maxPasses < Integer.MAX_VALUE ? maxPasses : "inf");
+	}
+
+	/**
+	*  Make task for one block of games on a fresh server instance.
+	*/
+	Callable<RunStats> newGameBlock (final int cardsDrawn, 
+			final int maxPasses, final int firstGame, final int numGames) {
+		final RunConfig sharedConfig = config;
+		final long seed = masterSeed;
+		final ViewerInterface sharedView = view;
+		final GameRecorder sharedRecorder = recorder;
+		final PlayerFactory sharedFactory = playerFactory;
+		final Metrics sharedMetrics = metrics;
+		final DealCorpus sharedCorpus = corpus;
+		final AtomicBoolean sharedStop = stopBlocks;
+		return new Callable<RunStats>() {
+			public RunStats call () {
+				GameServer worker = new GameServer(sharedConfig);
+				worker.masterSeed = seed;
+				worker.corpus = sharedCorpus;
+				worker.stopBlocks = sharedStop;
+				worker.view = sharedView;
+				worker.recorder = sharedRecorder;
+				worker.playerFactory = sharedFactory;
+				worker.metrics = sharedMetrics;
+				return worker.runGameBlock(
+					cardsDrawn, maxPasses, firstGame, numGames);
+			}
+		};
+	}
+
+	/**
+	*  Have the blocks this instance runs in been stopped?
+	*/
+	boolean isStopped () {
+		return stopBlocks != null && stopBlocks.get();
+	}
+
+	/**
+	*  Run a block of games on this instance; return their stats.
+	*    (Ends early, with part stats, if blocks are stopped.)
+	*/
+	public RunStats runGameBlock (int cardsDrawn, int maxPasses, 
+			int firstGame, int numGames) {
+		if (view == null) view = new ViewerNull();
+		stats = new RunStats();
+		for (int i = firstGame; i < firstGame + numGames; i++) {
+			if (isStopped()) break;
+			runOneGame(newDeal(masterSeed, corpus, cardsDrawn, maxPasses, i),
+				GameState.gameSeed(masterSeed, i));
+		}
+		return stats;
+	}
+
+	/**
+	*  Run paired comparison of players over a series.
+	*/
+	public void runCompareSeries () {
+		System.out.println("Number of deals: " + config.numGames);
+		System.out.println("Master seed: " + masterSeed);
+		for (int i = 0; i < comparePlayers.length; i++)
+			System.out.println("Player " + (i+1) + ": " 
+				+ comparePlayers[i].getName());
+		for (int[] rule: config.rules)
+			runManyCompares(rule[0], rule[1]);
+	}
+
+	/**
+	*  Play every player on the same deals, in parallel blocks.
+	*    Stops early (in block order) once every pair of players
+	*    differs at the configured stop z; the stricter-than-usual z 
+	*    allows for checking after each block.
+	*/
+	public void runManyCompares (int cardsDrawn, int maxPasses) {
+		PairedStats total = new PairedStats(comparePlayers.length);
+		int numGames = config.numGames;
+		ExecutorService pool = Executors.newFixedThreadPool(config.numThreads);
+		stopBlocks = new AtomicBoolean();
+		Deque<Future<PairedStats>> blocks = new ArrayDeque<Future<PairedStats>>();
+		int nextStart = 0;
+		try {
+			for (int start = 0; start < numGames; start += BLOCK_SIZE) {
+				for (; nextStart < numGames && blocks.size() < maxBlocksAhead();
+						nextStart += BLOCK_SIZE) {
+					blocks.add(pool.submit(newCompareBlock(cardsDrawn, maxPasses,
+						nextStart, Math.min(BLOCK_SIZE, numGames - nextStart))));
+				}
+				total.merge(blocks.remove().get());
+				if (config.compareStopZ > 0 
+						&& total.isAllDifferent(config.compareStopZ))
+					break;
+			}
+		}
+		catch (InterruptedException exception) {
+			System.err.println("Error: Interrupted while comparing players.");
+			return;
+		}
+		catch (ExecutionException exception) {
+			System.err.println("Error: Compare block failed: " + exception.getCause());
+			return;
+		}
+		finally {
+			stopPool(pool);
+		}
+		System.out.println(ruleName(cardsDrawn, maxPasses) + ":");
+		for (int i = 0; i < comparePlayers.length; i++) {
+			System.out.println("  " + comparePlayers[i].getName() + ": " 
+				+ total.getPlayer(i).summary(CONFIDENCE_Z));
+		}
+		for (int a = 0; a < comparePlayers.length; a++) {
+			for (int b = a+1; b < comparePlayers.length; b++) {
+				System.out.println("  " + total.pairSummary(a, b, 
+					comparePlayers[a].getName(), comparePlayers[b].getName()));
+			}
+		}
+	}
+
+	/**
+	*  Make task for one block of paired deals.
+	*/
+	Callable<PairedStats> newCompareBlock (final int cardsDrawn, 
+			final int maxPasses, final int firstGame, final int numGames) {
+		final RunConfig sharedConfig = config;
+		final long seed = masterSeed;
+		final PlayerFactory[] players = comparePlayers;
+		final DealCorpus sharedCorpus = corpus;
+		final AtomicBoolean sharedStop = stopBlocks;
+		return new Callable<PairedStats>() {
+			public PairedStats call () {
+				GameServer worker = new GameServer(sharedConfig);
+				worker.masterSeed = seed;
+				worker.corpus = sharedCorpus;
+				worker.stopBlocks = sharedStop;
+				return worker.runCompareBlock(players, 
+					cardsDrawn, maxPasses, firstGame, numGames);
+			}
+		};
+	}
+
+	/**
+	*  Play each player on a block of deals on this instance.
+	*    (Ends early, with part stats, if blocks are stopped.)
+	*/
+	public PairedStats runCompareBlock (PlayerFactory[] players, 
+			int cardsDrawn, int maxPasses, int firstGame, int numGames) {
+		if (view == null) view = new ViewerNull();
+		PairedStats paired = new PairedStats(players.length);
+		boolean[] won = new boolean[players.length];
+		for (int i = firstGame; i < firstGame + numGames; i++) {
+			if (isStopped()) break;
+			long seed = GameState.gameSeed(masterSeed, i);
+			for (int p = 0; p < players.length; p++) {
+				playerFactory = players[p];
+				stats = paired.getPlayer(p);
+				won[p] = runOneGame(newDeal(masterSeed, corpus, 
+					cardsDrawn, maxPasses, i), seed);
+			}
+			paired.addDeal(won);
+		}
+		return paired;
+	}
+
+	/**
+	*  Run full-information solver over the same deals as a series.
+	*/
+	public void runSolveSeries () {
+		System.out.println("Number of deals: " + config.numGames);
+		System.out.println("Master seed: " + masterSeed);
+		System.out.println("Solver node limit: " + config.solverMaxNodes);
+		if (config.solveCacheFile != null) {
+			solveCache = new SolveCache();
+			try {
+				solveCache.open(config.solveCacheFile);
+			}
+			catch (IOException exception) {
+				System.err.println("Error: Could not open solve cache: " 
+					+ exception.getMessage());
+				return;
+			}
+			System.out.println("Solve cache: " + solveCache.size() + " results");
+		}
+		if (config.tableGigabytes > 0) {
+			solveTable = new TranspositionTable(config.tableGigabytes);
+			System.out.println("Shared solver table: " 
+				+ (solveTable.sizeBytes() >> 20) + " MB");
+		}
+		for (int[] rule: config.rules)
+			runManySolves(rule[0], rule[1]);
+		if (solveCache != null) {
+			System.out.println("Solve cache: " + solveCache.getHits() + " deals known, " 
+				+ solveCache.getMisses() + " solved");
+			try {
+				solveCache.close();
+			}
+			catch (IOException exception) {
+				System.err.println("Error: Could not close solve cache.");
+			}
+		}
+	}
+
+	/**
+	*  Solve many deals in parallel blocks.
+	*    Solvable share is an upper bound on any player's win rate,
+	*    if the unknown (node limit) share is small.
+	*/
+	public void runManySolves (int cardsDrawn, int maxPasses) {
+		long[] totals = new long[3];
+		int numGames = config.numGames;
+		ExecutorService pool = Executors.newFixedThreadPool(config.numThreads);
+		stopBlocks = new AtomicBoolean();
+		Deque<Future<long[]>> blocks = new ArrayDeque<Future<long[]>>();
+		int nextStart = 0;
+		try {
+			for (int start = 0; start < numGames; start += BLOCK_SIZE) {
+				for (; nextStart < numGames && blocks.size() < maxBlocksAhead();
+						nextStart += BLOCK_SIZE) {
+					blocks.add(pool.submit(newSolveBlock(cardsDrawn, maxPasses,
+						nextStart, Math.min(BLOCK_SIZE, numGames - nextStart))));
+				}
+				long[] counts = blocks.remove().get();
+				for (int i = 0; i < totals.length; i++) 
+					totals[i] += counts[i];
+			}
+		}
+		catch (InterruptedException exception) {
+			System.err.println("Error: Interrupted while solving games.");
+			return;
+		}
+		catch (ExecutionException exception) {
+			System.err.println("Error: Solve block failed: " + exception.getCause());
+			return;
+		}
+		finally {
+			stopPool(pool);
+		}
+		DecimalFormat df = new DecimalFormat("#0.0");
+		System.out.println(ruleName(cardsDrawn, maxPasses) 
+			+ ": solvable " + df.format((double) totals[Solver.SOLVED]/numGames * 100) 
+			+ "% (unknown " + df.format((double) totals[Solver.UNKNOWN]/numGames * 100) 
+			+ "%)");
+	}
+
+	/**
+	*  Make task for one block of deals to solve.
+	*/
+	Callable<long[]> newSolveBlock (final int cardsDrawn, 
+			final int maxPasses, final int firstGame, final int numGames) {
+		final long seed = masterSeed;
+		final DealCorpus sharedCorpus = corpus;
+		final SolveCache sharedCache = solveCache;
+		final TranspositionTable sharedTable = solveTable;
+		final long maxNodes = config.solverMaxNodes;
+		final AtomicBoolean sharedStop = stopBlocks;
+		return new Callable<long[]>() {
+			public long[] call () throws IOException {
+				if (sharedStop.get()) return new long[3];
+				return runSolveBlock(seed, sharedCorpus, sharedCache, sharedTable,
+					maxNodes, cardsDrawn, maxPasses, firstGame, numGames);
+			}
+		};
+	}
+
+	/**
+	*  Solve a block of deals; return counts by solver result.
+	*    (Corpus may be null: deals then come from master seed.
+	*    Cache may be null: every deal is then solved. Table may
+	*    be null: the solver then keeps its own.)
+	*/
+	public static long[] runSolveBlock (long masterSeed, DealCorpus corpus,
+			SolveCache cache, TranspositionTable table, long maxNodes, 
+			int cardsDrawn, int maxPasses, int firstGame, int numGames) 
+			throws IOException {
+		long[] counts = new long[3];
+		Solver solver = new Solver(maxNodes, table);
+		for (int i = firstGame; i < firstGame + numGames; i++) {
+			GameState deal = newDeal(masterSeed, corpus, cardsDrawn, maxPasses, i);
+			int result = cache != null ? cache.lookup(deal, maxNodes) : -1;
+			if (result < 0) {
+				result = solver.solve(deal);
+				if (cache != null) 
+					cache.put(deal, result, solver.getNodes(), maxNodes);
+			}
+			counts[result]++;
+		}
+		return counts;
+	}
+
+	/**
+	*  Run one game from a given deal seed; return if game won.
+	*/
+	public boolean runOneGame (int cardsDrawn, int maxPasses, long seed) {
+		GameState deal = new GameState(cardsDrawn, maxPasses);
+		deal.setupNewGame(seed);
+		return runOneGame(deal, seed);
+	}
+
+	/**
+	*  Run one game from a new deal; return if game won.
+	*    (Seed is for the game record only.)
+	*/
+	public boolean runOneGame (GameState deal, long seed) {
+		int cardsDrawn = deal.getcardsDrawn(), maxPasses = deal.getMaxPasses();
+		game = deal;
+		playerView = new PlayerView(game);
+		player = playerFactory.newPlayer(this);
+		numLogged = 0;
+		int numMoves = 0;
+		int lossReason = Metrics.END_PLAYER_SURRENDER;
+		positions.clear();
+		while (!game.isOver()) {
+			if (config.viewGames) {
+				view.update(game);
+//				Thread.sleep(2000);
+			}
+
+			// Repeated position: player is looping, so end game
+			// (from a repeat PlayerComputer either replays the same
+			// cycle or surrenders at the end of the deck)
+			if (!positions.add(game.getHash())) {
+				logMove(0, 0, 0);
+				game.handleMoveSurrender(0, 0);
+				lossReason = Metrics.END_LOOP;
+				break;
+			}
+			player.askNextMove();
+			numMoves++;
+			if (metrics != null) metrics.countTick();
+
+			// Move cap (backstop)
+			if (numMoves > config.maxMoves && !game.isOver()) {
+				logMove(0, 0, 0);
+				game.handleMoveSurrender(0, 0);
+				lossReason = Metrics.END_MOVE_CAP;
+			}
+		}
+		stats.addGame(game.isGameWon(), numMoves, game.getPass());
+		if (metrics != null) 
+			metrics.countGame(game.isGameWon(), numMoves, lossReason);
+		if (recorder != null) {
+			try {
+				recorder.write(seed, cardsDrawn, maxPasses, 
+					game.isGameWon(), moveLog, numLogged);
+			}
+			catch (IOException exception) {
+				System.err.println("Error: Could not write game record.");
+			}
+		}
+		return game.isGameWon();
+	}
+
+	/**
+	*  Log a move call for the recorder.
+	*/
+	void logMove (int p1, int p2, int p3) {
+		if (recorder != null) {
+			moveLog = GameRecorder.encodeMove(moveLog, numLogged++, p1, p2, p3);
+		}
+	}
+
+	/**
+	*  Player view game: return masked view of live game state.
+	*/
+	public PlayerView playerViewGame () {
+		return playerView;
+	}
+	
+	/**
+	*  Player move callback: delegate to game object.
+	*/
+	public boolean playerMoveCall (int p1, int p2, int p3) {
+		logMove(p1, p2, p3);
+		boolean retval = game.playerMoveCall(p1, p2, p3);
+		if (metrics != null) metrics.countMove(retval);
+		if (!retval) {
+			System.err.println("Warning: Rejected move call."); 
+		}
+		return retval;
+	}	
+	
+	/**
+	*  Player metrics: counters shared by the run, if collecting.
+	*/
+	public Metrics playerMetrics () {
+		return metrics;
+	}
+
+	/**
+	*  Main method: parse command line and run (headless).
+	*/
+	public static void main (String[] args) {
+		RunConfig config;
+		try {
+			config = RunConfig.parse(args);
+		}
+		catch (IllegalArgumentException exception) {
+			System.err.println("Error: " + exception.getMessage());
+			System.err.println(RunConfig.USAGE);
+			System.exit(2);
+			return;
+		}
+		if (config.showHelp) {
+			System.out.println(RunConfig.USAGE);
+			return;
+		}
+		new GameServer(config).run();
+	}
+}
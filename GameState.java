@@ -1,244 +1,533 @@
-//********************************************************************
-//  GameState.java              @version 1.06
-//    State of one game of Klondike solitaire.
-//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
-//  See the bottom of this file for any licensing information.
-//********************************************************************
-
-public class GameState {
-	private boolean gameOver;
-	private int cardsDrawn, maxPasses, pass;
-
-	private Pile[] pile;        // Piles of cards in game
-	final int NUM_PILES = 13;
-	final int IDX_DECK = 0;
-	final int IDX_WASTE = 1;
-	final int IDX_FOUND = 2;
-	final int IDX_TABLE = 6;
-
-	//-----------------------------------------------------------------
-	//  Constructor (blank)
-	//-----------------------------------------------------------------
-   public GameState(int cardsDrawn, int maxPasses){
-		pass = 1;
-		gameOver = false;
-		this.maxPasses = maxPasses;
-		this.cardsDrawn = cardsDrawn;
-		pile = new Pile[NUM_PILES];		
-		for (int i = 0; i < NUM_PILES; i++) {
-			pile[i] = new Pile();		
-		}
-	}
-
-	//-----------------------------------------------------------------
-	//  Constructor (copy)
-	//-----------------------------------------------------------------
-   public GameState(GameState old) {
-		pass = old.pass;
-		gameOver = old.gameOver;
-		maxPasses = old.maxPasses;
-		cardsDrawn = old.cardsDrawn;
-		pile = new Pile[NUM_PILES];		
-		for (int i = 0; i < NUM_PILES; i++) {
-			pile[i] = new Pile(old.pile[i]);		
-		}
-	}
-
-	//-----------------------------------------------------------------
-	//  Accessors
-	//-----------------------------------------------------------------
-	public boolean isOver () { return gameOver; }
-	public int getcardsDrawn () { return cardsDrawn; }
-	public int getMaxPasses () { return maxPasses; }
-	public int getPass () { return pass; }
-	public Pile deck () { return pile[IDX_DECK]; }
-	public Pile waste () { return pile[IDX_WASTE]; }
-	public Pile found (int i) { return pile[IDX_FOUND+i]; }
-	public Pile table (int i) { return pile[IDX_TABLE+i]; }
-	public Pile getPile (int i) { return pile[i]; }
-	
-	//-----------------------------------------------------------------
-	//  Setup a new game
-	//-----------------------------------------------------------------
-	public void setupNewGame () {
-		pile[IDX_DECK] = new Pile(true);
-		deck().shuffle();
-		for (int i = 0; i < 7; i++) {
-			deck().drawToPile(table(i));
-			table(i).getTopCard().setFaceUp();
-			for (int j = i+1; j < 7; j++) {
-				deck().drawToPile(table(j));
-			}
-		}			
-	}
-
-	//-----------------------------------------------------------------
-	//  Check if game won
-	//-----------------------------------------------------------------
-	public boolean isGameWon () {
-		for (int i = 2; i <= 5; i++) {
-			if (pile[i].size() < 13) 
-				return false;
-		}
-		return true;
-	}
-	
-	//-----------------------------------------------------------------
-	//  Scrubs hidden data on player view copy
-	//-----------------------------------------------------------------
-	public void scrubHiddenData () {
-
-		// On first pass, scrub cards face-down in deck
-		if (pass == 0) {
-			for (int i = 0; i < deck().size(); i++) {
-				deck().get(i).scrubData();
-			}					
-		}		
-	
-		// On any pass, scrub cards face-down in tables
-		for (int i = 0; i < NUM_PILES-IDX_TABLE; i++) {
-			for (int j = 0; j < table(i).size(); j++) {
-				Card card = table(i).get(j);
-				if (!card.isFaceUp()) {
-					card.scrubData();
-				}
-			}		
-		}	
-	}
-
-	//-----------------------------------------------------------------
-	//  Is integer in range (inclusive)?
-	//-----------------------------------------------------------------
-	boolean isInRange (int num, int low, int high) {
-		return (low <= num && num <= high);	
-	}
-	
-	//-----------------------------------------------------------------
-	//  Player move call: return if move valid
-	//-----------------------------------------------------------------
-	public boolean playerMoveCall (int p1, int p2, int p3) {
-		if (handleMoveToDeck(p1, p2)) return true;
-		if (handleMoveToWaste(p1, p2)) return true;
-		if (handleMoveToFound(p1, p2)) return true;
-		if (handleMoveToTable(p1, p2, p3)) return true;
-		if (handleMoveFlipTop(p1, p2)) return true;
-		if (handleMoveSurrender(p1, p2)) return true;
-		return false;	
-	}	
-
-	//-----------------------------------------------------------------
-	//  Handle move to deck (recycle waste, start new pass)
-	//-----------------------------------------------------------------
-	boolean handleMoveToDeck (int src, int dst) {
-		if (dst == 0) {
-			if (src != 1) return false;
-			if (waste().isEmpty()) return false;
-			if (deck().isEmpty() && pass < maxPasses) {
-				waste().flipWholePileFaceDown(deck());
-				pass++;
-				return true;
-			}		
-		}
-		return false;
-	}
-
-	//-----------------------------------------------------------------
-	//  Handle move to waste (turn cards from deck)
-	//-----------------------------------------------------------------
-	boolean handleMoveToWaste (int src, int dst) {
-		if (dst == 1) {
-			if (src != 0) return false;
-			if (deck().isEmpty()) return false;
-			for (int i = 0; i < cardsDrawn && !deck().isEmpty(); i++) {
-				deck().drawToPile(waste());
-				waste().getTopCard().setFaceUp();
-			}
-			return true;
-		}
-		return false;
-	}
-
-	//-----------------------------------------------------------------
-	//  Handle move to found (one card from waste or table)
-	//-----------------------------------------------------------------
-	boolean handleMoveToFound (int src, int dst) {
-		if (isInRange(dst, 2, 5)) {
-			if (!(src == 1 || isInRange(src, 6, 12))) return false;
-			if (pile[src].isEmpty()) return false;
-			Card card = pile[src].getTopCard();
-			if (!card.isFaceUp()) return false;
-
-			// Ace to empty foundation
-			if (card.getRank() == 1 && pile[dst].isEmpty()) {
-				pile[src].drawToPile(pile[dst]);
-				return true;
-			}
-
-			// Same suit, one more rank
-			if (pile[dst].isEmpty()) return false;
-			Card destCard = pile[dst].getTopCard();
-			if ((card.getSuit() == destCard.getSuit())
-					&& (card.getRank() == destCard.getRank()+1)) {
-				pile[src].drawToPile(pile[dst]);
-				return true;
-			}
-		}
-		return false;
-	}
-
-	//-----------------------------------------------------------------
-	//  Handle move to table (any non-deck, possibly more than one)
-	//-----------------------------------------------------------------
-	boolean handleMoveToTable (int src, int dst, int idx) {
-		if (isInRange(dst, 6, 12)) {
-			if (src == 0 || src == dst) return false;
-			if (pile[src].isEmpty()) return false;
-			if (isInRange(src, 1, 5)) idx = pile[src].size()-1; // one card
-			if (!isInRange(idx, 0, pile[src].size()-1)) return false;
-			Card card = pile[src].get(idx);
-			if (!card.isFaceUp()) return false;
-			
-			// King to empty tableau
-			if (card.getRank() == 13 && pile[dst].isEmpty()) {
-				pile[src].moveSubpileToPile(idx, pile[dst]);
-				return true;
-			}
-
-			// Reverse color, one less rank
-			if (pile[dst].isEmpty()) return false;
-			Card destCard = pile[dst].getTopCard();
-			if ((card.isBlack() != destCard.isBlack())
-					&& (card.getRank() == destCard.getRank()-1)) {
-				pile[src].moveSubpileToPile(idx, pile[dst]);
-				return true;
-			}
-		}
-		return false;
-	}
-
-	//-----------------------------------------------------------------
-	//  Handle move flip top card (coded by src == dst)
-	//-----------------------------------------------------------------
-	boolean handleMoveFlipTop (int src, int dst) {
-		if (dst == src) {
-			if (!isInRange(src, 6, 12)) return false;
-			if (pile[src].isEmpty()) return false;
-			if (pile[src].getTopCard().isFaceUp()) return false;
-			pile[src].getTopCard().setFaceUp();
-			return true;
-		}	
-		return false;
-	}
-	
-	//-----------------------------------------------------------------
-	//  Handle surrender game
-	//-----------------------------------------------------------------
-	boolean handleMoveSurrender (int src, int dst) {
-		if (dst == 0 && src == 0) {
-			gameOver = true;
-			return true;
-		}
-		return false;
-	}
-}
-
+//********************************************************************
+//  GameState.java              @version 1.17
+//    State of one game of Klondike solitaire.
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class GameState {
+	private boolean gameOver;
+	private int cardsDrawn, maxPasses, pass;
+	private long hash;          // Zobrist hash, kept up to date
+
+	// Card index, kept up to date: pile and position of each card
+	// (by CardCode.index), and face-down count of each table
+	private byte[] cardPile = new byte[CardCode.NUM_CARDS];
+	private byte[] cardPos = new byte[CardCode.NUM_CARDS];
+	private int[] numFaceDown = new int[NUM_PILES];
+
+	private Pile[] pile;        // Piles of cards in game
+	static final int NUM_PILES = 13;
+	static final int IDX_DECK = 0;
+	static final int IDX_WASTE = 1;
+	static final int IDX_FOUND = 2;
+	static final int IDX_TABLE = 6;
+	static final int MAX_MOVES = 256;    // Bound on generateMoves()
+
+	//-----------------------------------------------------------------
+	//  Constructor (blank)
+	//-----------------------------------------------------------------
+   public GameState(int cardsDrawn, int maxPasses){
+		pass = 1;
+		gameOver = false;
+		this.maxPasses = maxPasses;
+		this.cardsDrawn = cardsDrawn;
+		pile = new Pile[NUM_PILES];		
+		for (int i = 0; i < NUM_PILES; i++) {
+			pile[i] = new Pile();		
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Constructor (copy)
+	//-----------------------------------------------------------------
+   public GameState(GameState old) {
+		pass = old.pass;
+		hash = old.hash;
+		cardPile = old.cardPile.clone();
+		cardPos = old.cardPos.clone();
+		numFaceDown = old.numFaceDown.clone();
+		gameOver = old.gameOver;
+		maxPasses = old.maxPasses;
+		cardsDrawn = old.cardsDrawn;
+		pile = new Pile[NUM_PILES];		
+		for (int i = 0; i < NUM_PILES; i++) {
+			pile[i] = new Pile(old.pile[i]);		
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Accessors
+	//-----------------------------------------------------------------
+	public boolean isOver () { return gameOver; }
+	public int getcardsDrawn () { return cardsDrawn; }
+	public int getMaxPasses () { return maxPasses; }
+	public int getPass () { return pass; }
+	public long getHash () { return hash; }
+
+	//-----------------------------------------------------------------
+	//  Card index accessors (constant time)
+	//    Pile of card is -1 if scrubbed; first face-up index of a 
+	//    table is its size if none is face up.
+	//-----------------------------------------------------------------
+	public int getCardPile (int card) { return cardPile[CardCode.index(card)]; }
+	public int getCardPos (int card) { return cardPos[CardCode.index(card)]; }
+	public int getNumFaceDown (int table) { return numFaceDown[table]; }
+	public int getFirstFaceUp (int table) { return numFaceDown[table]; }
+
+	//-----------------------------------------------------------------
+	//  Pile accessors
+	//-----------------------------------------------------------------
+	public Pile deck () { return pile[IDX_DECK]; }
+	public Pile waste () { return pile[IDX_WASTE]; }
+	public Pile found (int i) { return pile[IDX_FOUND+i]; }
+	public Pile table (int i) { return pile[IDX_TABLE+i]; }
+	public Pile getPile (int i) { return pile[i]; }
+	
+	//-----------------------------------------------------------------
+	//  Setup a new game (unseeded)
+	//-----------------------------------------------------------------
+	public void setupNewGame () {
+		setupNewGame(ThreadLocalRandom.current().nextLong());
+	}
+
+	//-----------------------------------------------------------------
+	//  Setup a new game (same seed always makes same deal)
+	//-----------------------------------------------------------------
+	public void setupNewGame (long seed) {
+		pile[IDX_DECK] = new Pile(true);
+		deck().shuffle(new SplittableRandom(seed));
+		dealFromDeck();
+	}
+
+	//-----------------------------------------------------------------
+	//  Setup a new game from numbered deal in corpus
+	//-----------------------------------------------------------------
+	public void setupNewGame (DealCorpus corpus, long dealNum) {
+		pile[IDX_DECK] = new Pile();
+		corpus.readDeal(dealNum, deck());
+		dealFromDeck();
+	}
+
+	//-----------------------------------------------------------------
+	//  Deal tableau from top of deck (deck already in order)
+	//-----------------------------------------------------------------
+	private void dealFromDeck () {
+		for (int i = 0; i < 7; i++) {
+			deck().drawToPile(table(i));
+			table(i).setTopFaceUp();
+			for (int j = i+1; j < 7; j++) {
+				deck().drawToPile(table(j));
+			}
+		}			
+		reindex();
+	}
+
+	//-----------------------------------------------------------------
+	//  Set up a position from cards already added to the piles
+	//    (e.g., a sampled deal of hidden cards), at given pass
+	//-----------------------------------------------------------------
+	public void setupPosition (int pass) {
+		this.pass = pass;
+		gameOver = false;
+		reindex();
+	}
+
+	//-----------------------------------------------------------------
+	//  Compute hash and card index from scratch
+	//-----------------------------------------------------------------
+	void reindex () {
+		hash = Zobrist.hash(this);
+		for (int p = 0; p < NUM_PILES; p++) {
+			Pile cards = pile[p];
+			numFaceDown[p] = 0;
+			for (int i = 0; i < cards.size(); i++) {
+				int card = cards.get(i);
+				cardPile[CardCode.index(card)] = (byte) p;
+				cardPos[CardCode.index(card)] = (byte) i;
+				if (p >= IDX_TABLE && !CardCode.isFaceUp(card)) numFaceDown[p]++;
+			}
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Track cards in pile from index to top: toggle their hash
+	//  keys, and note where they are in the card index
+	//    (call before a pile changes above index, and again after;
+	//    face-down counts change only by flips, so are kept there)
+	//-----------------------------------------------------------------
+	void trackFrom (int p, int index) {
+		Pile cards = pile[p];
+		for (int i = index; i < cards.size(); i++) {
+			int card = cards.get(i);
+			hash ^= Zobrist.cardKey(card, p, i);
+			cardPile[CardCode.index(card)] = (byte) p;
+			cardPos[CardCode.index(card)] = (byte) i;
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Change pass number (and its hash key)
+	//-----------------------------------------------------------------
+	void setPass (int newPass) {
+		hash ^= Zobrist.passKey(pass, maxPasses) 
+			^ Zobrist.passKey(newPass, maxPasses);
+		pass = newPass;
+	}
+
+	//-----------------------------------------------------------------
+	//  Seed for game number N of a run (SplitMix64 finalizer)
+	//    Depends only on the master seed and N, so a run split over
+	//    any number of threads deals exactly the same games.
+	//-----------------------------------------------------------------
+	public static long gameSeed (long masterSeed, long gameNum) {
+		long z = masterSeed + (gameNum + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	//-----------------------------------------------------------------
+	//  Check if game won
+	//-----------------------------------------------------------------
+	public boolean isGameWon () {
+		for (int i = 2; i <= 5; i++) {
+			if (pile[i].size() < 13) 
+				return false;
+		}
+		return true;
+	}
+	
+	//-----------------------------------------------------------------
+	//  Scrubs hidden data on player view copy
+	//    (hash is left as that of the unscrubbed position; card
+	//    index drops scrubbed cards)
+	//-----------------------------------------------------------------
+	public void scrubHiddenData () {
+
+		// On first pass, scrub cards face-down in deck
+		if (pass == 1) {
+			for (int i = 0; i < deck().size(); i++) {
+				cardPile[CardCode.index(deck().get(i))] = -1;
+				deck().set(i, CardCode.scrub(deck().get(i)));
+			}					
+		}		
+	
+		// On any pass, scrub cards face-down in tables
+		for (int i = 0; i < NUM_PILES-IDX_TABLE; i++) {
+			for (int j = 0; j < table(i).size(); j++) {
+				int card = table(i).get(j);
+				if (!CardCode.isFaceUp(card)) {
+					cardPile[CardCode.index(card)] = -1;
+					table(i).set(j, CardCode.scrub(card));
+				}
+			}		
+		}	
+	}
+
+	//-----------------------------------------------------------------
+	//  Is integer in range (inclusive)?
+	//-----------------------------------------------------------------
+	boolean isInRange (int num, int low, int high) {
+		return (low <= num && num <= high);	
+	}
+	
+	//-----------------------------------------------------------------
+	//  Player move call: return if move valid
+	//-----------------------------------------------------------------
+	public boolean playerMoveCall (int p1, int p2, int p3) {
+		if (handleMoveToDeck(p1, p2)) return true;
+		if (handleMoveToWaste(p1, p2)) return true;
+		if (handleMoveToFound(p1, p2)) return true;
+		if (handleMoveToTable(p1, p2, p3)) return true;
+		if (handleMoveFlipTop(p1, p2)) return true;
+		if (handleMoveSurrender(p1, p2)) return true;
+		return false;	
+	}	
+
+	//-----------------------------------------------------------------
+	//  Generate every legal move into buffer (packed by Move.encode);
+	//  return count. Surrender is always legal, so is not listed.
+	//    Order: flips (by pile), to foundation (tables, then waste;
+	//    each by foundation), to table (tables by card from first
+	//    face-up, then waste, then foundations; each by table),
+	//    then draw, then recycle.
+	//  Buffer needs MAX_MOVES (each card has at most two targets,
+	//  or six empty tables for a king).
+	//-----------------------------------------------------------------
+	public int generateMoves (int[] moves) {
+		int n = 0;
+
+		// Flip table tops
+		for (int src = IDX_TABLE; src < NUM_PILES; src++) {
+			if (!pile[src].isEmpty() 
+					&& !CardCode.isFaceUp(pile[src].getTopCard())) 
+				moves[n++] = Move.encode(src, src, 0);
+		}
+
+		// To foundation
+		for (int i = IDX_TABLE; i <= NUM_PILES; i++) {
+			int src = (i == NUM_PILES ? IDX_WASTE : i);
+			if (pile[src].isEmpty()) continue;
+			int card = pile[src].getTopCard();
+			if (!CardCode.isFaceUp(card)) continue;
+			for (int dst = IDX_FOUND; dst < IDX_TABLE; dst++) {
+				if (fitsOnFound(card, dst)) 
+					moves[n++] = Move.encode(src, dst, 0);
+			}
+		}
+
+		// To table
+		for (int i = IDX_TABLE; i < NUM_PILES + IDX_TABLE - 1; i++) {
+			int src = (i < NUM_PILES ? i : i - NUM_PILES + 1);  // then 1-5
+			Pile srcPile = pile[src];
+			if (srcPile.isEmpty()) continue;
+			int first = srcPile.size()-1;
+			if (src >= IDX_TABLE) {
+				if (!CardCode.isFaceUp(srcPile.getTopCard())) continue;
+				while (first > 0 && CardCode.isFaceUp(srcPile.get(first-1))) 
+					first--;
+			}
+			for (int idx = first; idx < srcPile.size(); idx++) {
+				int card = srcPile.get(idx);
+				for (int dst = IDX_TABLE; dst < NUM_PILES; dst++) {
+					if (dst != src && fitsOnTable(card, dst)) 
+						moves[n++] = Move.encode(src, dst, idx);
+				}
+			}
+		}
+
+		// Draw from deck, or recycle waste
+		if (!deck().isEmpty()) 
+			moves[n++] = Move.encode(IDX_DECK, IDX_WASTE, 0);
+		else if (!waste().isEmpty() && pass < maxPasses) 
+			moves[n++] = Move.encode(IDX_WASTE, IDX_DECK, 0);
+		return n;
+	}
+
+	//-----------------------------------------------------------------
+	//  Would face-up card fit on given foundation?
+	//-----------------------------------------------------------------
+	boolean fitsOnFound (int card, int dst) {
+
+		// Ace to empty foundation
+		if (pile[dst].isEmpty()) 
+			return CardCode.rank(card) == 1;
+
+		// Same suit, one more rank
+		int destCard = pile[dst].getTopCard();
+		return CardCode.sameSuit(card, destCard)
+			&& CardCode.rank(card) == CardCode.rank(destCard)+1;
+	}
+
+	//-----------------------------------------------------------------
+	//  Would face-up card fit on given table?
+	//-----------------------------------------------------------------
+	boolean fitsOnTable (int card, int dst) {
+
+		// King to empty tableau
+		if (pile[dst].isEmpty()) 
+			return CardCode.rank(card) == 13;
+
+		// Reverse color, one less rank
+		int destCard = pile[dst].getTopCard();
+		return !CardCode.sameColor(card, destCard)
+			&& CardCode.rank(card) == CardCode.rank(destCard)-1;
+	}
+
+	//-----------------------------------------------------------------
+	//  Make move: as playerMoveCall, but record how to undo it
+	//-----------------------------------------------------------------
+	public boolean doMove (Move move) {
+		int src = move.p1, dst = move.p2, idx = move.p3;
+		int srcSize = isInRange(src, 0, NUM_PILES-1) ? pile[src].size() : 0;
+		int deckSize = deck().size();
+		move.type = Move.NONE;
+		move.numCards = 0;
+		if (handleMoveToDeck(src, dst)) {
+			move.type = Move.TO_DECK;
+			move.numCards = deck().size();
+		}
+		else if (handleMoveToWaste(src, dst)) {
+			move.type = Move.TO_WASTE;
+			move.numCards = deckSize - deck().size();
+		}
+		else if (handleMoveToFound(src, dst)) {
+			move.type = Move.TO_FOUND;
+			move.numCards = 1;
+		}
+		else if (handleMoveToTable(src, dst, idx)) {
+			move.type = Move.TO_TABLE;
+			move.numCards = srcSize - pile[src].size();
+		}
+		else if (handleMoveFlipTop(src, dst)) {
+			move.type = Move.FLIP_TOP;
+		}
+		else if (handleMoveSurrender(src, dst)) {
+			move.type = Move.SURRENDER;
+		}
+		return move.type != Move.NONE;
+	}
+
+	//-----------------------------------------------------------------
+	//  Unmake move (must be the last one made)
+	//-----------------------------------------------------------------
+	public void undoMove (Move move) {
+		int src = move.p1, dst = move.p2;
+		switch (move.type) {
+			case Move.TO_DECK:
+				trackFrom(IDX_DECK, 0);
+				deck().flipWholePileFaceUp(waste());
+				trackFrom(IDX_WASTE, 0);
+				setPass(pass-1);
+				break;
+			case Move.TO_WASTE: {
+				int deckSize = deck().size();
+				trackFrom(IDX_WASTE, waste().size() - move.numCards);
+				for (int i = 0; i < move.numCards; i++) {
+					deck().add(CardCode.faceDown(waste().removeTopCard()));
+				}
+				trackFrom(IDX_DECK, deckSize);
+				break;
+			}
+			case Move.TO_FOUND: {
+				int srcSize = pile[src].size();
+				trackFrom(dst, pile[dst].size()-1);
+				pile[dst].drawToPile(pile[src]);
+				trackFrom(src, srcSize);
+				break;
+			}
+			case Move.TO_TABLE: {
+				int srcSize = pile[src].size();
+				int index = pile[dst].size() - move.numCards;
+				trackFrom(dst, index);
+				pile[dst].moveSubpileToPile(index, pile[src]);
+				trackFrom(src, srcSize);
+				break;
+			}
+			case Move.FLIP_TOP:
+				trackFrom(src, pile[src].size()-1);
+				pile[src].setTopFaceDown();
+				trackFrom(src, pile[src].size()-1);
+				numFaceDown[src]++;
+				break;
+			case Move.SURRENDER:
+				gameOver = false;
+				break;
+		}
+		move.type = Move.NONE;
+	}
+
+	//-----------------------------------------------------------------
+	//  Handle move to deck (recycle waste, start new pass)
+	//-----------------------------------------------------------------
+	boolean handleMoveToDeck (int src, int dst) {
+		if (dst == 0) {
+			if (src != 1) return false;
+			if (waste().isEmpty()) return false;
+			if (deck().isEmpty() && pass < maxPasses) {
+				trackFrom(IDX_WASTE, 0);
+				waste().flipWholePileFaceDown(deck());
+				trackFrom(IDX_DECK, 0);
+				setPass(pass+1);
+				return true;
+			}		
+		}
+		return false;
+	}
+
+	//-----------------------------------------------------------------
+	//  Handle move to waste (turn cards from deck)
+	//-----------------------------------------------------------------
+	boolean handleMoveToWaste (int src, int dst) {
+		if (dst == 1) {
+			if (src != 0) return false;
+			if (deck().isEmpty()) return false;
+			int wasteSize = waste().size();
+			trackFrom(IDX_DECK, Math.max(0, deck().size() - cardsDrawn));
+			for (int i = 0; i < cardsDrawn && !deck().isEmpty(); i++) {
+				deck().drawToPile(waste());
+				waste().setTopFaceUp();
+			}
+			trackFrom(IDX_WASTE, wasteSize);
+			return true;
+		}
+		return false;
+	}
+
+	//-----------------------------------------------------------------
+	//  Handle move to found (one card from waste or table)
+	//-----------------------------------------------------------------
+	boolean handleMoveToFound (int src, int dst) {
+		if (isInRange(dst, 2, 5)) {
+			if (!(src == 1 || isInRange(src, 6, 12))) return false;
+			if (pile[src].isEmpty()) return false;
+			int card = pile[src].getTopCard();
+			if (!CardCode.isFaceUp(card)) return false;
+
+			if (fitsOnFound(card, dst)) {
+				int dstSize = pile[dst].size();
+				trackFrom(src, pile[src].size()-1);
+				pile[src].drawToPile(pile[dst]);
+				trackFrom(dst, dstSize);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	//-----------------------------------------------------------------
+	//  Handle move to table (any non-deck, possibly more than one)
+	//-----------------------------------------------------------------
+	boolean handleMoveToTable (int src, int dst, int idx) {
+		if (isInRange(dst, 6, 12)) {
+			if (src == 0 || src == dst) return false;
+			if (pile[src].isEmpty()) return false;
+			if (isInRange(src, 1, 5)) idx = pile[src].size()-1; // one card
+			if (!isInRange(idx, 0, pile[src].size()-1)) return false;
+			int card = pile[src].get(idx);
+			if (!CardCode.isFaceUp(card)) return false;
+			
+			if (fitsOnTable(card, dst)) {
+				int dstSize = pile[dst].size();
+				trackFrom(src, idx);
+				pile[src].moveSubpileToPile(idx, pile[dst]);
+				trackFrom(dst, dstSize);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	//-----------------------------------------------------------------
+	//  Handle move flip top card (coded by src == dst)
+	//-----------------------------------------------------------------
+	boolean handleMoveFlipTop (int src, int dst) {
+		if (dst == src) {
+			if (!isInRange(src, 6, 12)) return false;
+			if (pile[src].isEmpty()) return false;
+			if (CardCode.isFaceUp(pile[src].getTopCard())) return false;
+			trackFrom(src, pile[src].size()-1);
+			pile[src].setTopFaceUp();
+			trackFrom(src, pile[src].size()-1);
+			numFaceDown[src]--;
+			return true;
+		}	
+		return false;
+	}
+	
+	//-----------------------------------------------------------------
+	//  Handle surrender game
+	//-----------------------------------------------------------------
+	boolean handleMoveSurrender (int src, int dst) {
+		if (dst == 0 && src == 0) {
+			gameOver = true;
+			return true;
+		}
+		return false;
+	}
+}
+
@@ -0,0 +1,98 @@
+import java.util.Arrays;
+
+//********************************************************************
+//  LongHashSet.java              @version 1.00
+//    Open-addressing set of long keys (no boxing, reusable).
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+public class LongHashSet {
+
+	//-----------------------------------------------------------------
+	//  Fields
+	//    Zero marks an empty slot, so key zero is tracked separately.
+	//-----------------------------------------------------------------
+	private long[] slots;
+	private int size;
+	private boolean hasZero;
+
+	//-----------------------------------------------------------------
+	//  Constructor (initial capacity, rounded up to power of two)
+	//-----------------------------------------------------------------
+	public LongHashSet (int capacity) {
+		int n = 16;
+		while (n < 2 * capacity) n <<= 1;
+		slots = new long[n];
+	}
+
+	//-----------------------------------------------------------------
+	//  Accessors
+	//-----------------------------------------------------------------
+	public int size () { return size + (hasZero ? 1 : 0); }
+
+	//-----------------------------------------------------------------
+	//  Add key; return true if it was not already present
+	//-----------------------------------------------------------------
+	public boolean add (long key) {
+		if (key == 0) {
+			boolean added = !hasZero;
+			hasZero = true;
+			return added;
+		}
+		int mask = slots.length - 1;
+		int i = spread(key) & mask;
+		while (slots[i] != 0) {
+			if (slots[i] == key) return false;
+			i = (i + 1) & mask;
+		}
+		slots[i] = key;
+		if (++size > slots.length / 2) 
+			grow();
+		return true;
+	}
+
+	//-----------------------------------------------------------------
+	//  Contains key?
+	//-----------------------------------------------------------------
+	public boolean contains (long key) {
+		if (key == 0) return hasZero;
+		int mask = slots.length - 1;
+		int i = spread(key) & mask;
+		while (slots[i] != 0) {
+			if (slots[i] == key) return true;
+			i = (i + 1) & mask;
+		}
+		return false;
+	}
+
+	//-----------------------------------------------------------------
+	//  Remove all keys (keeps capacity)
+	//-----------------------------------------------------------------
+	public void clear () {
+		if (size > 0) 
+			Arrays.fill(slots, 0);
+		size = 0;
+		hasZero = false;
+	}
+
+	//-----------------------------------------------------------------
+	//  Double capacity and rehash
+	//-----------------------------------------------------------------
+	void grow () {
+		long[] old = slots;
+		slots = new long[2 * old.length];
+		size = 0;
+		for (long key: old) {
+			if (key != 0) add(key);
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Spread key bits for slot index
+	//-----------------------------------------------------------------
+	static int spread (long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
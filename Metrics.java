@@ -0,0 +1,145 @@
+//********************************************************************
+//  Metrics.java              @version 1.02
+//    Run-wide counters for the game loop and player, shared by
+//    all worker threads (LongAdder: cheap under contention).
+//    Snapshots are one JSON object per line, so runs from
+//    different builds can be diffed.
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+import java.io.*;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Metrics {
+
+	//-----------------------------------------------------------------
+	//  Constants
+	//-----------------------------------------------------------------
+
+	// Player rules (PlayerComputer.check*), in order tried
+	static final int RULE_FLIP_TABLE_TOP = 0;
+	static final int RULE_MOVE_TO_TABLE = 1;
+	static final int RULE_MOVE_TO_FOUND = 2;
+	static final int RULE_MOVE_FROM_FOUND = 3;
+	static final int RULE_MOVE_SUBPILE = 4;
+	static final int RULE_DRAW_FROM_DECK = 5;
+	static final int RULE_START_NEW_PASS = 6;
+	static final int RULE_SURRENDER_GAME = 7;
+	static final String[] RULE_NAMES = {"flipTableTop", "moveToTable",
+		"moveToFound", "moveFromFound", "moveSubpile", "drawFromDeck",
+		"startNewPass", "surrenderGame"};
+
+	// Reasons a game ended without a win
+	static final int END_PLAYER_SURRENDER = 0;
+	static final int END_MOVE_CAP = 1;
+	static final int END_LOOP = 2;
+	static final String[] END_NAMES = {"playerSurrender", "moveCap", "loop"};
+
+	//-----------------------------------------------------------------
+	//  Fields
+	//-----------------------------------------------------------------
+	private final long startNanos = System.nanoTime();
+
+	private final LongAdder games = new LongAdder();
+	private final LongAdder wins = new LongAdder();
+	private final LongAdder ticks = new LongAdder();     // askNextMove calls
+	private final LongAdder moves = new LongAdder();     // Accepted calls
+	private final LongAdder rejected = new LongAdder();  // Rejected calls
+	private final LongAdder copies = new LongAdder();    // GameState copies by player
+	private final LongAdder[] rules = newAdders(RULE_NAMES.length);
+	private final LongAdder[] losses = newAdders(END_NAMES.length);
+	private final LongAdder[] moveHist = newAdders(RunStats.MOVE_BINS);
+
+	//-----------------------------------------------------------------
+	//  Make array of fresh counters
+	//-----------------------------------------------------------------
+	static LongAdder[] newAdders (int n) {
+		LongAdder[] adders = new LongAdder[n];
+		for (int i = 0; i < n; i++)
+			adders[i] = new LongAdder();
+		return adders;
+	}
+
+	//-----------------------------------------------------------------
+	//  Counting methods
+	//-----------------------------------------------------------------
+	public void countTick () { ticks.increment(); }
+	public void countRule (int rule) { rules[rule].increment(); }
+	public void countCopies (long n) { copies.add(n); }
+
+	public void countMove (boolean accepted) {
+		if (accepted) moves.increment();
+		else rejected.increment();
+	}
+
+	public void countGame (boolean won, int numTicks, int lossReason) {
+		games.increment();
+		if (won) wins.increment();
+		else losses[lossReason].increment();
+		moveHist[Math.min(numTicks / RunStats.MOVE_BIN,
+			RunStats.MOVE_BINS-1)].increment();
+	}
+
+	//-----------------------------------------------------------------
+	//  Snapshot as one-line JSON object
+	//    (Counts are read while threads run, so may be off by a
+	//    game or so against each other; exact at end of run.)
+	//-----------------------------------------------------------------
+	public String toJson (boolean isFinal) {
+		double seconds = (System.nanoTime() - startNanos) / 1e9;
+		long numGames = games.sum(), numMoves = moves.sum();
+		long numCopies = copies.sum();
+		StringBuilder s = new StringBuilder("{");
+		s.append("\"final\":" + isFinal);
+		s.append(",\"seconds\":" + String.format(Locale.ROOT, "%.3f", seconds));
+		s.append(",\"games\":" + numGames);
+		s.append(",\"wins\":" + wins.sum());
+		s.append(",\"gamesPerSec\":"
+			+ String.format(Locale.ROOT, "%.1f", seconds > 0 ? numGames/seconds : 0));
+		s.append(",\"ticks\":" + ticks.sum());
+		s.append(",\"moves\":" + numMoves);
+		s.append(",\"movesPerGame\":"
+			+ String.format(Locale.ROOT, "%.2f", numGames > 0 ? (double) numMoves/numGames : 0));
+		s.append(",\"rejectedMoves\":" + rejected.sum());
+		s.append(",\"stateCopies\":" + numCopies);
+		s.append(",\"copiesPerMove\":"
+			+ String.format(Locale.ROOT, "%.4f", numMoves > 0 ? (double) numCopies/numMoves : 0));
+		s.append(",\"rules\":");
+		appendCounts(s, RULE_NAMES, rules);
+		s.append(",\"losses\":");
+		appendCounts(s, END_NAMES, losses);
+		s.append(",\"ticksHist\":{\"binSize\":" + RunStats.MOVE_BIN + ",\"counts\":[");
+		for (int i = 0; i < moveHist.length; i++)
+			s.append((i > 0 ? "," : "") + moveHist[i].sum());
+		s.append("]}}");
+		return s.toString();
+	}
+
+	//-----------------------------------------------------------------
+	//  Append named counters as JSON object
+	//-----------------------------------------------------------------
+	static void appendCounts (StringBuilder s, String[] names, LongAdder[] counts) {
+		s.append("{");
+		for (int i = 0; i < names.length; i++) {
+			s.append((i > 0 ? "," : "") + "\"" + names[i] + "\":" + counts[i].sum());
+		}
+		s.append("}");
+	}
+
+	//-----------------------------------------------------------------
+	//  Append snapshot line to file
+	//-----------------------------------------------------------------
+	public synchronized void writeSnapshot (String fileName, boolean isFinal)
+			throws IOException {
+		PrintWriter out = new PrintWriter(new FileWriter(fileName, true));
+		try {
+			out.println(toJson(isFinal));
+			if (out.checkError()) throw new IOException("Write failed");
+		}
+		finally {
+			out.close();
+		}
+	}
+}
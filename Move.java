@@ -0,0 +1,76 @@
+//********************************************************************
+//  Move.java              @version 1.01
+//    One move call, with what is needed to undo it exactly.
+//    Filled in by GameState.doMove(); reusable.
+//    Also packs move calls into ints for move buffers.
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+public class Move {
+
+	//-----------------------------------------------------------------
+	//  Move types (which rule handled the call)
+	//-----------------------------------------------------------------
+	public static final int NONE = 0;          // Rejected
+	public static final int TO_DECK = 1;       // Recycle waste, new pass
+	public static final int TO_WASTE = 2;      // Draw from deck
+	public static final int TO_FOUND = 3;      // One card to foundation
+	public static final int TO_TABLE = 4;      // Card(s) to table
+	public static final int FLIP_TOP = 5;      // Turn up table top
+	public static final int SURRENDER = 6;
+
+	//-----------------------------------------------------------------
+	//  Fields
+	//-----------------------------------------------------------------
+	int p1, p2, p3;      // Move call parameters
+	int type;            // Move type applied (NONE if rejected)
+	int numCards;        // Cards moved, drawn, or recycled
+
+	//-----------------------------------------------------------------
+	//  Constructors
+	//-----------------------------------------------------------------
+	public Move () {}
+
+	public Move (int p1, int p2, int p3) {
+		set(p1, p2, p3);
+	}
+
+	//-----------------------------------------------------------------
+	//  Set call parameters (clears undo data)
+	//-----------------------------------------------------------------
+	public void set (int p1, int p2, int p3) {
+		this.p1 = p1;
+		this.p2 = p2;
+		this.p3 = p3;
+		type = NONE;
+		numCards = 0;
+	}
+
+	//-----------------------------------------------------------------
+	//  Set call parameters from packed move
+	//-----------------------------------------------------------------
+	public void set (int packed) {
+		set(src(packed), dst(packed), idx(packed));
+	}
+
+	//-----------------------------------------------------------------
+	//  Packed move: (p1, p2, p3) in one int, 8 bits each
+	//    (top 8 bits left free for callers' own use)
+	//-----------------------------------------------------------------
+	public static int encode (int p1, int p2, int p3) {
+		return p1 | (p2 << 8) | (p3 << 16);
+	}
+	public static int src (int packed) { return packed & 0xFF; }
+	public static int dst (int packed) { return (packed >> 8) & 0xFF; }
+	public static int idx (int packed) { return (packed >> 16) & 0xFF; }
+
+	//-----------------------------------------------------------------
+	//  Accessors
+	//-----------------------------------------------------------------
+	public int getSrc () { return p1; }
+	public int getDst () { return p2; }
+	public int getIdx () { return p3; }
+	public int getType () { return type; }
+	public int getNumCards () { return numCards; }
+}
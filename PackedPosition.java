@@ -0,0 +1,127 @@
+//********************************************************************
+//  PackedPosition.java              @version 1.00
+//    Fixed-width packed encoding of a full game position: WORDS
+//    longs (64 bytes) holding rules, pass, pile sizes and every
+//    card with its face-up flag. Same position, same words; so
+//    equality and hashing work on the packed form, and positions
+//    can be kept flat in one long array (WORDS per position).
+//    Encodes unscrubbed positions only; game-over is not kept.
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+public final class PackedPosition {
+
+	//-----------------------------------------------------------------
+	//  Layout (bit fields, low bits of word 0 first)
+	//    cardsDrawn (8), maxPasses (32), pass (32),
+	//    size of each pile (13 x 5), then cards pile by pile,
+	//    bottom first (52 x 7: card index 6, face-up 1).
+	//  Total 501 bits; unused high bits are zero.
+	//-----------------------------------------------------------------
+	public static final int WORDS = 8;
+	static final int SIZE_BITS = 5;      // Piles hold at most 24
+	static final int CARD_BITS = 7;
+
+	//-----------------------------------------------------------------
+	//  No instances
+	//-----------------------------------------------------------------
+	private PackedPosition () {}
+
+	//-----------------------------------------------------------------
+	//  Encode game into words [off, off+WORDS) of array
+	//-----------------------------------------------------------------
+	public static void encode (GameState game, long[] words, int off) {
+		for (int i = 0; i < WORDS; i++) words[off+i] = 0;
+		int bit = put(words, off, 0, 8, game.getcardsDrawn());
+		bit = put(words, off, bit, 32, game.getMaxPasses());
+		bit = put(words, off, bit, 32, game.getPass());
+		for (int p = 0; p < GameState.NUM_PILES; p++) {
+			bit = put(words, off, bit, SIZE_BITS, game.getPile(p).size());
+		}
+		for (int p = 0; p < GameState.NUM_PILES; p++) {
+			Pile pile = game.getPile(p);
+			for (int i = 0; i < pile.size(); i++) {
+				int card = pile.get(i);
+				assert(CardCode.isKnown(card));
+				bit = put(words, off, bit, CARD_BITS, CardCode.index(card) << 1
+					| (CardCode.isFaceUp(card) ? 1 : 0));
+			}
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Encode game into new array
+	//-----------------------------------------------------------------
+	public static long[] encode (GameState game) {
+		long[] words = new long[WORDS];
+		encode(game, words, 0);
+		return words;
+	}
+
+	//-----------------------------------------------------------------
+	//  Decode words [off, off+WORDS) of array into new game
+	//-----------------------------------------------------------------
+	public static GameState decode (long[] words, int off) {
+		int cardsDrawn = (int) get(words, off, 0, 8);
+		int maxPasses = (int) get(words, off, 8, 32);
+		int pass = (int) get(words, off, 40, 32);
+		GameState game = new GameState(cardsDrawn, maxPasses);
+		int sizeBit = 72;
+		int bit = sizeBit + GameState.NUM_PILES * SIZE_BITS;
+		for (int p = 0; p < GameState.NUM_PILES; p++, sizeBit += SIZE_BITS) {
+			Pile pile = game.getPile(p);
+			int size = (int) get(words, off, sizeBit, SIZE_BITS);
+			for (int i = 0; i < size; i++, bit += CARD_BITS) {
+				int code = (int) get(words, off, bit, CARD_BITS);
+				int card = CardCode.fromIndex(code >> 1);
+				pile.add((code & 1) != 0 ? CardCode.faceUp(card) : card);
+			}
+		}
+		game.setupPosition(pass);
+		return game;
+	}
+
+	//-----------------------------------------------------------------
+	//  Are two packed positions the same?
+	//-----------------------------------------------------------------
+	public static boolean equals (long[] a, int aOff, long[] b, int bOff) {
+		for (int i = 0; i < WORDS; i++) {
+			if (a[aOff+i] != b[bOff+i]) return false;
+		}
+		return true;
+	}
+
+	//-----------------------------------------------------------------
+	//  Hash of packed position (mixes every word)
+	//-----------------------------------------------------------------
+	public static long hash (long[] words, int off) {
+		long h = 0;
+		for (int i = 0; i < WORDS; i++) {
+			h = (h ^ words[off+i]) * 0x9E3779B97F4A7C15L;
+			h ^= h >>> 29;
+		}
+		return h;
+	}
+
+	//-----------------------------------------------------------------
+	//  Put n-bit value at bit; return next bit
+	//-----------------------------------------------------------------
+	static int put (long[] words, int off, int bit, int n, long value) {
+		value &= (1L << n) - 1;
+		int w = off + (bit >>> 6), shift = bit & 63;
+		words[w] |= value << shift;
+		if (shift + n > 64) words[w+1] |= value >>> (64 - shift);
+		return bit + n;
+	}
+
+	//-----------------------------------------------------------------
+	//  Get n-bit value at bit
+	//-----------------------------------------------------------------
+	static long get (long[] words, int off, int bit, int n) {
+		int w = off + (bit >>> 6), shift = bit & 63;
+		long value = words[w] >>> shift;
+		if (shift + n > 64) value |= words[w+1] << (64 - shift);
+		return value & ((1L << n) - 1);
+	}
+}
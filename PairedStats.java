@@ -0,0 +1,97 @@
+//********************************************************************
+//  PairedStats.java              @version 1.00
+//    Statistics for several players on the same deals: each
+//    player's own RunStats, plus counts of deals won by one 
+//    player but lost by another, for a McNemar paired test.
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+import java.text.DecimalFormat;
+
+public class PairedStats {
+	private final RunStats[] players;
+	private final long[][] onlyWon;    // [a][b]: a won, b lost
+
+	//-----------------------------------------------------------------
+	//  Constructor
+	//-----------------------------------------------------------------
+	public PairedStats (int numPlayers) {
+		players = new RunStats[numPlayers];
+		for (int i = 0; i < numPlayers; i++)
+			players[i] = new RunStats();
+		onlyWon = new long[numPlayers][numPlayers];
+	}
+
+	//-----------------------------------------------------------------
+	//  Accessors
+	//-----------------------------------------------------------------
+	public int getNumPlayers () { return players.length; }
+	public RunStats getPlayer (int i) { return players[i]; }
+	public long getOnlyWon (int a, int b) { return onlyWon[a][b]; }
+
+	//-----------------------------------------------------------------
+	//  Add win/loss of each player on one deal
+	//    (per-player moves and passes go into getPlayer(i))
+	//-----------------------------------------------------------------
+	public void addDeal (boolean[] won) {
+		for (int a = 0; a < players.length; a++) {
+			for (int b = 0; b < players.length; b++) {
+				if (won[a] && !won[b]) onlyWon[a][b]++;
+			}
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Add in all deals of another instance
+	//-----------------------------------------------------------------
+	public void merge (PairedStats other) {
+		assert(other.players.length == players.length);
+		for (int a = 0; a < players.length; a++) {
+			players[a].merge(other.players[a]);
+			for (int b = 0; b < players.length; b++) 
+				onlyWon[a][b] += other.onlyWon[a][b];
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  McNemar z statistic for players a and b
+	//    Only discordant deals count; positive if a wins more.
+	//    (Square of this is the usual chi-squared, 1 d.f.)
+	//-----------------------------------------------------------------
+	public double compareZ (int a, int b) {
+		long ab = onlyWon[a][b], ba = onlyWon[b][a];
+		if (ab + ba == 0) return 0;
+		return (ab - ba) / Math.sqrt(ab + ba);
+	}
+
+	//-----------------------------------------------------------------
+	//  Are players a and b different at given z?
+	//-----------------------------------------------------------------
+	public boolean isDifferent (int a, int b, double z) {
+		return Math.abs(compareZ(a, b)) >= z;
+	}
+
+	//-----------------------------------------------------------------
+	//  Is every pair of players different at given z?
+	//-----------------------------------------------------------------
+	public boolean isAllDifferent (double z) {
+		for (int a = 0; a < players.length; a++) {
+			for (int b = a+1; b < players.length; b++) {
+				if (!isDifferent(a, b, z)) return false;
+			}
+		}
+		return true;
+	}
+
+	//-----------------------------------------------------------------
+	//  Report line for one pair
+	//-----------------------------------------------------------------
+	public String pairSummary (int a, int b, String nameA, String nameB) {
+		DecimalFormat df = new DecimalFormat("#0.00");
+		return nameA + " vs " + nameB + ": "
+			+ onlyWon[a][b] + " won only by first, "
+			+ onlyWon[b][a] + " only by second, "
+			+ "z = " + df.format(compareZ(a, b));
+	}
+}
@@ -1,99 +1,142 @@
-//********************************************************************
-//  Pile.java              @version 1.00
-//    A pile of cards; as ArrayList, index 0 is at bottom.
-//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
-//  See the bottom of this file for any licensing information.
-//********************************************************************
-
-import java.util.ArrayList;
-
-public class Pile {
-	private ArrayList<Card> cardList;
-
-	//-----------------------------------------------------------------
-	//  Constructor (empty)
-	//-----------------------------------------------------------------
-   public Pile () {
-		cardList = new ArrayList<Card>();
-   }
-
-	//-----------------------------------------------------------------
-	//  Constructor (fresh deck of 52)
-	//-----------------------------------------------------------------
-   public Pile (boolean freshDeck) {
-		cardList = new ArrayList<Card>();
-		if (freshDeck) {
-			for (char suit = 1; suit <= 4; suit++) {
-				for (int rank = 1; rank <= 13; rank++) {
-					add(new Card(rank, suit, false));
-				}
-			}
-		}
-   }
-
-	//-----------------------------------------------------------------
-	//  Constructor (copy)
-	//-----------------------------------------------------------------
-   public Pile (Pile old) {
-		cardList = new ArrayList<Card>();
-		for (int i = 0; i < old.size(); i++) {
-			add(new Card(old.get(i)));					
-		}
-   }
-
-	//-----------------------------------------------------------------
-	//  Shuffle the pile in a simple fashion
-	//-----------------------------------------------------------------
-	public void shuffle () {
-		ArrayList<Card> newList = new ArrayList<Card>();
-		while (size() > 0) {
-			int random = (int)(Math.random() * size());
-			newList.add( cardList.remove(random) );
-		}
-		cardList = newList;
-	}
-
-	//-----------------------------------------------------------------
-	//  ArrayList-style methods
-	//-----------------------------------------------------------------
-	public void add (Card card) { cardList.add(card); }
-	public Card get (int i) { return cardList.get(i); }
-	public int size () { return cardList.size(); }
-	public boolean isEmpty () { return cardList.isEmpty(); }
-
-	//-----------------------------------------------------------------
-	//  Top-card accessors
-	//-----------------------------------------------------------------
-	public Card getTopCard () { return cardList.get(size()-1); }
-	public Card removeTopCard () { return cardList.remove(size()-1); }
-
-	//-----------------------------------------------------------------
-	//  Draw top card out to another pile
-	//-----------------------------------------------------------------
-	public void drawToPile (Pile dest) {
-		dest.add(removeTopCard());
-	}
-
-	//-----------------------------------------------------------------
-	//  Flip the whole pile face down to another pile
-	//-----------------------------------------------------------------
-	public void flipWholePileFaceDown (Pile dest) {
-		assert(this != dest);
-		while (size() > 0) {
-			drawToPile(dest);
-			dest.getTopCard().setFaceDown();
-		}
-	}
-	
-	//-----------------------------------------------------------------
-	//  Move pile subsection in order from index
-	//-----------------------------------------------------------------
-	public void moveSubpileToPile (int index, Pile dest) {
-		assert(this != dest);
-		assert(0 <= index && index < size());	
-		while (size() > index) {
-			dest.add(cardList.remove(index));
-		}	
-	}
-}
-
+//********************************************************************
+//  Pile.java              @version 1.04
+//    A pile of cards; fixed array of byte codes (see CardCode),
+//    index 0 is at bottom.
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+import java.util.SplittableRandom;
+
+public class Pile {
+	private final byte[] cards;   // Card codes (room for whole deck)
+	private int size;             // Number of cards in use
+
+	//-----------------------------------------------------------------
+	//  Constructor (empty)
+	//-----------------------------------------------------------------
+   public Pile () {
+		cards = new byte[CardCode.NUM_CARDS];
+		size = 0;
+   }
+
+	//-----------------------------------------------------------------
+	//  Constructor (fresh deck of 52)
+	//-----------------------------------------------------------------
+   public Pile (boolean freshDeck) {
+		this();
+		if (freshDeck) {
+			for (int suit = 1; suit <= 4; suit++) {
+				for (int rank = 1; rank <= 13; rank++) {
+					add(CardCode.make(rank, suit, false));
+				}
+			}
+		}
+   }
+
+	//-----------------------------------------------------------------
+	//  Constructor (copy)
+	//-----------------------------------------------------------------
+   public Pile (Pile old) {
+		this();
+		copyFrom(old);
+   }
+
+	//-----------------------------------------------------------------
+	//  Overwrite with contents of another pile
+	//-----------------------------------------------------------------
+	public void copyFrom (Pile old) {
+		System.arraycopy(old.cards, 0, cards, 0, old.size);
+		size = old.size;
+	}
+
+	//-----------------------------------------------------------------
+	//  Shuffle the pile in place (Fisher-Yates, from given generator)
+	//-----------------------------------------------------------------
+	public void shuffle (SplittableRandom random) {
+		for (int i = size-1; i > 0; i--) {
+			int pick = random.nextInt(i+1);
+			byte swap = cards[i];
+			cards[i] = cards[pick];
+			cards[pick] = swap;
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  ArrayList-style methods
+	//-----------------------------------------------------------------
+	public int get (int i) {
+		assert(0 <= i && i < size);
+		return cards[i] & 0xFF;
+	}
+	public void set (int i, int card) {
+		assert(0 <= i && i < size);
+		cards[i] = (byte) card;
+	}
+	public int size () { return size; }
+	public boolean isEmpty () { return size == 0; }
+
+	public void add (int card) {
+		assert(size < cards.length);
+		cards[size++] = (byte) card;
+	}
+	public void clear () { size = 0; }
+
+	//-----------------------------------------------------------------
+	//  Top-card accessors
+	//-----------------------------------------------------------------
+	public int getTopCard () { return get(size-1); }
+	public int removeTopCard () {
+		int card = getTopCard();
+		size--;
+		return card;
+	}
+	public void setTopFaceUp () { set(size-1, CardCode.faceUp(getTopCard())); }
+	public void setTopFaceDown () { set(size-1, CardCode.faceDown(getTopCard())); }
+
+	//-----------------------------------------------------------------
+	//  Draw top card out to another pile
+	//-----------------------------------------------------------------
+	public void drawToPile (Pile dest) {
+		dest.add(removeTopCard());
+	}
+
+	//-----------------------------------------------------------------
+	//  Flip the whole pile face down to another pile
+	//    (reversed order, as if turned over in one go)
+	//-----------------------------------------------------------------
+	public void flipWholePileFaceDown (Pile dest) {
+		assert(this != dest);
+		assert(dest.size + size <= dest.cards.length);
+		for (int i = size-1; i >= 0; i--) {
+			dest.cards[dest.size++] = (byte) CardCode.faceDown(cards[i] & 0xFF);
+		}
+		size = 0;
+	}
+
+	//-----------------------------------------------------------------
+	//  Flip the whole pile face up to another pile
+	//    (reverses flipWholePileFaceDown)
+	//-----------------------------------------------------------------
+	public void flipWholePileFaceUp (Pile dest) {
+		assert(this != dest);
+		assert(dest.size + size <= dest.cards.length);
+		for (int i = size-1; i >= 0; i--) {
+			dest.cards[dest.size++] = (byte) CardCode.faceUp(cards[i] & 0xFF);
+		}
+		size = 0;
+	}
+
+	//-----------------------------------------------------------------
+	//  Move pile subsection in order from index
+	//-----------------------------------------------------------------
+	public void moveSubpileToPile (int index, Pile dest) {
+		assert(this != dest);
+		assert(0 <= index && index < size());
+		int count = size - index;
+		assert(dest.size + count <= dest.cards.length);
+		System.arraycopy(cards, index, dest.cards, dest.size, count);
+		dest.size += count;
+		size = index;
+	}
+}
@@ -1,337 +1,353 @@
-//********************************************************************
-//  PlayerComputer.java              @version 1.07
-//    A computer player for solitaire.
-//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
-//  See the bottom of this file for any licensing information.
-//********************************************************************
-
-public class PlayerComputer implements PlayerInterface {
-	GameState game;               // Scrubbed game state
-	PlayerCallbacks callbacks;    // Callbacks to server
-	ViewerInterface view;         // View the game if needed
-	
-	boolean movedThisTick, movedThisPass;
-
-	//-----------------------------------------------------------------
-	//  Constructor
-	//-----------------------------------------------------------------
-	public PlayerComputer (PlayerCallbacks pc) {
-		callbacks = pc;
-		movedThisPass = false;
-		view = new ViewerText();
-	}
-
-	//-----------------------------------------------------------------
-	//  Ask me for my next move (AI strategy)
-	//-----------------------------------------------------------------
-	public void askNextMove () {
-		movedThisTick = false;		
-		game = callbacks.playerViewGame();
-
-		checkFlipTableTop();
-		checkMoveToTable();
-		checkMoveToFound();
-		checkMoveFromFound();
-		checkMoveSubpile();
-		checkDrawFromDeck();
-		checkStartNewPass();
-		checkSurrenderGame();
-	}
-
-	//-----------------------------------------------------------------
-	//  Call move shortcut
-	//-----------------------------------------------------------------
-	boolean callMove (int p1, int p2, int p3) {
-		movedThisTick = true;
-		if (!(p1==0 && p2==1)) 
-			// not counting draws from deck
-			movedThisPass = true;
-		return callbacks.playerMoveCall(p1, p2, p3);
-	}
-
-	//-----------------------------------------------------------------
-	//  Surrender the game
-	//-----------------------------------------------------------------
-	void checkSurrenderGame () {
-		if (movedThisTick) return;
-		callMove(0, 0, 0);
-	}
-
-	//-----------------------------------------------------------------
-	//  Check to start a new pass
-	//-----------------------------------------------------------------
-	void checkStartNewPass () {
-		if (movedThisTick) return;
-		if (game.deck().isEmpty() && !game.waste().isEmpty() 
-				&& game.getPass() < game.getMaxPasses() && movedThisPass) {
-			callMove(1, 0, 0);
-			movedThisPass = false;
-		}
-	}
-
-	//-----------------------------------------------------------------
-	//  Check for more cards to flip from deck
-	//-----------------------------------------------------------------
-	void checkDrawFromDeck () {
-		if (movedThisTick) return;
-		if (!game.deck().isEmpty()) {
-			callMove(0, 1, 0);		
-		}
-	}
-	
-	//-----------------------------------------------------------------
-	//  Check to flip a table pile top face-up
-	//-----------------------------------------------------------------
-	void checkFlipTableTop () {
-		if (movedThisTick) return;
-		for (int i = 6; i <= 12; i++) {
-			Pile table = game.getPile(i);
-			if (!table.isEmpty() && !table.getTopCard().isFaceUp()) {
-				callMove(i, i, 0);
-				return;
-			}
-		}
-	}
-	
-	//-----------------------------------------------------------------
-	//  Check for any moves to foundation
-	//-----------------------------------------------------------------
-	void checkMoveToFound () {
-		if (movedThisTick) return;
-		for (int i = 6; i <= 12; i++) {
-			checkMoveToFoundFromPile(i);		
-		}
-		checkMoveToFoundFromPile(1); // waste
-	}
-
-	//-----------------------------------------------------------------
-	//  Check for move from given pile to foundation (one card)
-	//-----------------------------------------------------------------
-	void checkMoveToFoundFromPile (int srcIdx) {
-		if (movedThisTick) return;
-		Pile srcPile = game.getPile(srcIdx);
-		if (srcPile.isEmpty()) return;
-		Card card = srcPile.getTopCard();
-
-		for (int j = 2; j <= 5; j++) {
-			Pile dstPile = game.getPile(j);
-
-			// Ace to empty foundation
-			if (dstPile.isEmpty()) {
-				if (card.getRank() == 1) {
-					callMove(srcIdx, j, 0);
-					return;
-				}
-				else continue;
-			}			
-				
-			// Same suit, one more rank
-			Card dstCard = dstPile.getTopCard();
-			if ((card.getSuit() == dstCard.getSuit())
-					&& (card.getRank() == dstCard.getRank()+1)) {
-				callMove(srcIdx, j, 0);
-				return;
-			}
-		}
-	}
-	
-	//-----------------------------------------------------------------
-	//  Check for any moves to table
-	//    Searches down tables by count of face-down cards
-	//    (Makes ~1% improvement over simple search right-to-left)
-	//-----------------------------------------------------------------
-	void checkMoveToTable () {
-		if (movedThisTick) return;
-
-		// Record cards down in each table
-		int numTables = game.NUM_PILES - game.IDX_TABLE;
-		int[] cardsDown = new int[numTables];
-		int maxDown = 0;
-		for (int i = 0; i < numTables; i++) {
-			int down = numFaceDownCards(
-				game.getPile(i+game.IDX_TABLE));
-			cardsDown[i] = down;
-			if (down > maxDown) 
-				maxDown = down;
-		}
-		
-		// Search down by count of face-downs
-		for (int down = maxDown; down >= 0; down--) {
-			for (int i = numTables-1; i >= 0; i--) {
-				if (cardsDown[i] == down)
-					checkMoveToTableFromPile(i+game.IDX_TABLE);
-			}
-		}
-		
-		// Also check for move from waste
-		checkMoveToTableFromPile(1); // waste
-	}
-	
-	//-----------------------------------------------------------------
-	//  Check given pile-to-table moves (possibly whole subpile)
-	//-----------------------------------------------------------------
-	void checkMoveToTableFromPile (int srcIdx) {
-		if (movedThisTick) return;
-		Pile srcPile = game.getPile(srcIdx);
-		if (srcPile.isEmpty()) return;
-		int faceIdx = (srcIdx == 1? // waste top only
-			srcPile.size()-1: idxFirstFaceUpCard(srcPile));
-		Card card = srcPile.get(faceIdx);
-
-		for (int j = 6; j <= 12; j++) {
-			Pile dstPile = game.getPile(j);
-
-			// King to empty tableaux
-			if (dstPile.isEmpty()) {
-				if (card.getRank() == 13 
-					// don't leave a table empty for this
-						&& (srcIdx == 1 || faceIdx > 0)) {
-					callMove(srcIdx, j, faceIdx);
-					return;
-				}
-				else continue;
-			}			
-			
-			// Switch color, one less rank
-			Card dstCard = dstPile.getTopCard();
-			if ((card.isBlack() != dstCard.isBlack())
-					&& (card.getRank() == dstCard.getRank()-1)) {
-				callMove(srcIdx, j, faceIdx);
-				return;
-			}
-		}
-	}
-
-	//-----------------------------------------------------------------
-	//  Check if moving a subpile can free up a card for foundation
-	//-----------------------------------------------------------------
-	void checkMoveSubpile () {
-		if (movedThisTick) return;
-		for (int i = 2; i <= 5; i++) {
-			if (game.getPile(i).isEmpty()) continue;
-			Card topFoundCard = game.getPile(i).getTopCard();
-
-			// Search table top for counterfeit (next rank, same color)
-			int counterPile = -1, counterIdx = -1;
-			for (int j = 6; j <= 12; j++) {
-				if (game.getPile(j).isEmpty()) continue;
-				Card topCard = game.getPile(j).getTopCard();
-				if ((topCard.getSuit() != topFoundCard.getSuit())
-						&& (topCard.isBlack() == topFoundCard.isBlack())
-						&& (topCard.getRank() == topFoundCard.getRank()+1)) {
-					counterIdx = game.getPile(j).size()-1;
-					counterPile = j;
-					break;
-				}
-			}
-			if (counterPile == -1) continue;
-			
-			// Search tables for actual buried match 
-			int matchPile = -1, matchIdx = -1;
-			for (int j = 6; j <= 12; j++) {
-				if (game.getPile(j).isEmpty()) continue;
-				for (int k = 0; k < game.getPile(j).size()-1; k++) {
-					Card nextCard = game.getPile(j).get(k);
-					if (nextCard.isFaceUp()
-							&& (nextCard != game.getPile(j).getTopCard())
-							&& (nextCard.getSuit() == topFoundCard.getSuit())
-							&& (nextCard.getRank() == topFoundCard.getRank()+1)) {
-						matchPile = j;
-						matchIdx = k;
-						break;
-					}
-				}
-			}
-			if (matchPile == -1) continue;
-				
-			// Make the subpile switch
-			callMove(matchPile, counterPile, matchIdx+1);
-			return;
-		}				
-	}
-
-	//-----------------------------------------------------------------
-	//  Check if foundation card can join table subpiles
-	//-----------------------------------------------------------------
-	void checkMoveFromFound () {
-		if (movedThisTick) return;
-		for (int i = 2; i <= 5; i++) {
-			if (game.getPile(i).isEmpty()) continue;
-			Card topFoundCard = game.getPile(i).getTopCard();
-
-			// Search table top one rank higher
-			int startPile = -1, startIdx = -1;
-			for (int j = 6; j <= 12; j++) {
-				if (game.getPile(j).isEmpty()) continue;
-				Card topCard = game.getPile(j).getTopCard();
-				if ((topCard.isBlack() != topFoundCard.isBlack())
-						&& (topCard.getRank() == topFoundCard.getRank()+1)) {
-					startIdx = game.getPile(j).size()-1;
-					startPile = j;
-					break;
-				}
-			}
-			if (startPile == -1) continue;
-			
-			// Search tables for subpile to be joined
-			int endPile = -1, endIdx = -1;
-			for (int jprime = 12; jprime >= 5; jprime--) {
-				int j = (jprime==5? 1: jprime);  // waste last
-				Pile srcPile = game.getPile(j);
-				if (srcPile.isEmpty()) continue;
-				int faceIdx = (j == 1? srcPile.size()-1 // waste top only
-					: idxFirstFaceUpCard(srcPile));
-				Card nextCard = game.getPile(j).get(faceIdx);
-				if ((nextCard.isBlack() != topFoundCard.isBlack())
-						&& (nextCard.getRank() == topFoundCard.getRank()-1)) {
-					endIdx = faceIdx;
-					endPile = j;
-					break;
-				}
-			}
-			if (endPile == -1) continue;
-			
-			// Make foundation card to table
-			callMove(i, startPile, 0);
-			return;
-		}
-	}
-	
-	//-----------------------------------------------------------------
-	//  Get index of first face-up card in a pile
-	//-----------------------------------------------------------------
-	int idxFirstFaceUpCard (Pile p) {
-		assert(!p.isEmpty());
-		assert(p.getTopCard().isFaceUp());
-		for (int i = 0; i < p.size(); i++) {
-			if (p.get(i).isFaceUp()) return i;
-		}
-		return -1;
-	}
-
-	//-----------------------------------------------------------------
-	//  Get number of face-down cards in a pile
-	//-----------------------------------------------------------------
-	int numFaceDownCards (Pile p) {
-		if (p.isEmpty()) return 0;
-		if (!p.getTopCard().isFaceUp()) return p.size();
-		return idxFirstFaceUpCard(p);	
-	}
-	
-	//-----------------------------------------------------------------
-	//  Is there a king ready for an empty table?
-	//-----------------------------------------------------------------
-	boolean isKingAvailable () {
-		for (int iprime = 6; iprime <= 13; iprime++) {
-			int i = (iprime==13? 1: iprime);  // waste last
-			Pile srcPile = game.getPile(i);
-			if (srcPile.isEmpty()) continue;
-			int faceIdx = (i == 1?  // waste top only
-				srcPile.size()-1 : idxFirstFaceUpCard(srcPile));
-			Card card = srcPile.get(faceIdx);
-			if (card.getRank() == 13) return true;
-		}	
-		return false;
-	}
-}
-
+//********************************************************************
+//  PlayerComputer.java              @version 1.15
+//    A computer player for solitaire.
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+public class PlayerComputer implements PlayerInterface {
+	PlayerView game;              // Scrubbed game view
+	PlayerCallbacks callbacks;    // Callbacks to server
+	Metrics metrics;              // Null if not collecting
+	
+	boolean movedThisTick, movedThisPass;
+
+	// Table moves searched by face-down count (else right-to-left)
+	boolean searchByFaceDown = true;
+
+	// Suits by color (CardCode suit numbers)
+	static final int[] RED_SUITS = {2, 3};
+	static final int[] BLACK_SUITS = {1, 4};
+
+	// Legal moves this tick (from shared generator)
+	int[] moves = new int[GameState.MAX_MOVES];
+	int numMoves;
+
+	//-----------------------------------------------------------------
+	//  Constructor
+	//-----------------------------------------------------------------
+	public PlayerComputer (PlayerCallbacks pc) {
+		callbacks = pc;
+		metrics = pc.playerMetrics();
+		movedThisPass = false;
+	}
+
+	//-----------------------------------------------------------------
+	//  Factory for this player (with given table search order)
+	//-----------------------------------------------------------------
+	public static PlayerFactory factory (final boolean searchByFaceDown) {
+		return new PlayerFactory() {
+			public PlayerInterface newPlayer (PlayerCallbacks pc) {
+				PlayerComputer player = new PlayerComputer(pc);
+				player.searchByFaceDown = searchByFaceDown;
+				return player;
+			}
+			public String getName () {
+				return searchByFaceDown ? "Computer" : "Computer (right-to-left)";
+			}
+		};
+	}
+
+	//-----------------------------------------------------------------
+	//  Ask me for my next move (AI strategy)
+	//-----------------------------------------------------------------
+	public void askNextMove () {
+		movedThisTick = false;		
+		game = callbacks.playerViewGame();
+		numMoves = game.generateMoves(moves);
+
+		checkFlipTableTop();
+		if (noteRule(Metrics.RULE_FLIP_TABLE_TOP)) return;
+		checkMoveToTable();
+		if (noteRule(Metrics.RULE_MOVE_TO_TABLE)) return;
+		checkMoveToFound();
+		if (noteRule(Metrics.RULE_MOVE_TO_FOUND)) return;
+		checkMoveFromFound();
+		if (noteRule(Metrics.RULE_MOVE_FROM_FOUND)) return;
+		checkMoveSubpile();
+		if (noteRule(Metrics.RULE_MOVE_SUBPILE)) return;
+		checkDrawFromDeck();
+		if (noteRule(Metrics.RULE_DRAW_FROM_DECK)) return;
+		checkStartNewPass();
+		if (noteRule(Metrics.RULE_START_NEW_PASS)) return;
+		checkSurrenderGame();
+		noteRule(Metrics.RULE_SURRENDER_GAME);
+	}
+
+	//-----------------------------------------------------------------
+	//  If moved this tick, count rule that did it; return if moved
+	//-----------------------------------------------------------------
+	boolean noteRule (int rule) {
+		if (!movedThisTick) return false;
+		if (metrics != null) metrics.countRule(rule);
+		return true;
+	}
+
+	//-----------------------------------------------------------------
+	//  Call move shortcut
+	//-----------------------------------------------------------------
+	boolean callMove (int p1, int p2, int p3) {
+		movedThisTick = true;
+		if (!(p1==0 && p2==1)) 
+			// not counting draws from deck
+			movedThisPass = true;
+		return callbacks.playerMoveCall(p1, p2, p3);
+	}
+
+	//-----------------------------------------------------------------
+	//  Find first legal move from src to dst range (inclusive),
+	//  with given card index (or any if negative); -1 if none
+	//-----------------------------------------------------------------
+	int findMove (int src, int dstLow, int dstHigh, int idx) {
+		for (int i = 0; i < numMoves; i++) {
+			int move = moves[i];
+			if (Move.src(move) == src && dstLow <= Move.dst(move) 
+					&& Move.dst(move) <= dstHigh
+					&& (idx < 0 || Move.idx(move) == idx))
+				return move;
+		}
+		return -1;
+	}
+
+	//-----------------------------------------------------------------
+	//  Surrender the game
+	//-----------------------------------------------------------------
+	void checkSurrenderGame () {
+		if (movedThisTick) return;
+		callMove(0, 0, 0);
+	}
+
+	//-----------------------------------------------------------------
+	//  Check to start a new pass
+	//-----------------------------------------------------------------
+	void checkStartNewPass () {
+		if (movedThisTick) return;
+		if (findMove(1, 0, 0, -1) >= 0 && movedThisPass) {
+			callMove(1, 0, 0);
+			movedThisPass = false;
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Check for more cards to flip from deck
+	//-----------------------------------------------------------------
+	void checkDrawFromDeck () {
+		if (movedThisTick) return;
+		if (findMove(0, 1, 1, -1) >= 0) {
+			callMove(0, 1, 0);		
+		}
+	}
+	
+	//-----------------------------------------------------------------
+	//  Check to flip a table pile top face-up
+	//-----------------------------------------------------------------
+	void checkFlipTableTop () {
+		if (movedThisTick) return;
+		for (int i = 6; i <= 12; i++) {
+			if (findMove(i, i, i, -1) >= 0) {
+				callMove(i, i, 0);
+				return;
+			}
+		}
+	}
+	
+	//-----------------------------------------------------------------
+	//  Check for any moves to foundation
+	//-----------------------------------------------------------------
+	void checkMoveToFound () {
+		if (movedThisTick) return;
+		for (int i = 6; i <= 12; i++) {
+			checkMoveToFoundFromPile(i);		
+		}
+		checkMoveToFoundFromPile(1); // waste
+	}
+
+	//-----------------------------------------------------------------
+	//  Check for move from given pile to foundation (one card)
+	//-----------------------------------------------------------------
+	void checkMoveToFoundFromPile (int srcIdx) {
+		if (movedThisTick) return;
+		int move = findMove(srcIdx, 2, 5, -1);
+		if (move >= 0) {
+			callMove(srcIdx, Move.dst(move), 0);
+		}
+	}
+	
+	//-----------------------------------------------------------------
+	//  Check for any moves to table
+	//    Searches down tables by count of face-down cards
+	//    (Makes ~1% improvement over simple search right-to-left)
+	//-----------------------------------------------------------------
+	void checkMoveToTable () {
+		if (movedThisTick) return;
+		int numTables = GameState.NUM_PILES - GameState.IDX_TABLE;
+		if (!searchByFaceDown) {
+			for (int i = numTables-1; i >= 0; i--)
+				checkMoveToTableFromPile(i+GameState.IDX_TABLE);
+			checkMoveToTableFromPile(1); // waste
+			return;
+		}
+
+		// Record cards down in each table
+		int[] cardsDown = new int[numTables];
+		int maxDown = 0;
+		for (int i = 0; i < numTables; i++) {
+			int down = numFaceDownCards(i+GameState.IDX_TABLE);
+			cardsDown[i] = down;
+			if (down > maxDown) 
+				maxDown = down;
+		}
+		
+		// Search down by count of face-downs
+		for (int down = maxDown; down >= 0; down--) {
+			for (int i = numTables-1; i >= 0; i--) {
+				if (cardsDown[i] == down)
+					checkMoveToTableFromPile(i+GameState.IDX_TABLE);
+			}
+		}
+		
+		// Also check for move from waste
+		checkMoveToTableFromPile(1); // waste
+	}
+	
+	//-----------------------------------------------------------------
+	//  Check given pile-to-table moves (possibly whole subpile)
+	//-----------------------------------------------------------------
+	void checkMoveToTableFromPile (int srcIdx) {
+		if (movedThisTick) return;
+		if (game.isEmpty(srcIdx)) return;
+		int faceIdx = (srcIdx == 1? // waste top only
+			game.size(srcIdx)-1: idxFirstFaceUpCard(srcIdx));
+
+		for (int j = 6; j <= 12; j++) {
+			if (findMove(srcIdx, j, j, faceIdx) < 0) continue;
+
+			// King to empty tableaux: 
+			// don't leave a table empty for this
+			if (game.isEmpty(j) && !(srcIdx == 1 || faceIdx > 0)) continue;
+
+			callMove(srcIdx, j, faceIdx);
+			return;
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Check if moving a subpile can free up a card for foundation
+	//    (Both cards sought are known, so found by card index.)
+	//-----------------------------------------------------------------
+	void checkMoveSubpile () {
+		if (movedThisTick) return;
+		for (int i = 2; i <= 5; i++) {
+			if (game.isEmpty(i)) continue;
+			int topFoundCard = game.getTopCard(i);
+			int rank = CardCode.rank(topFoundCard) + 1;
+			if (rank > 13) continue;
+			int suit = CardCode.suit(topFoundCard);
+
+			// Table top for counterfeit (next rank, other suit of same color)
+			int counterCard = CardCode.make(rank, 5 - suit, true);
+			int counterPile = game.getCardPile(counterCard);
+			if (!isTable(counterPile) 
+					|| game.getCardPos(counterCard) != game.size(counterPile)-1) 
+				continue;
+			
+			// Actual match buried in table (face up, not top)
+			int matchCard = CardCode.make(rank, suit, true);
+			int matchPile = game.getCardPile(matchCard);
+			int matchIdx = game.getCardPos(matchCard);
+			if (!isTable(matchPile) || matchIdx >= game.size(matchPile)-1) 
+				continue;
+				
+			// Make the subpile switch
+			callMove(matchPile, counterPile, matchIdx+1);
+			return;
+		}				
+	}
+
+	//-----------------------------------------------------------------
+	//  Check if foundation card can join table subpiles
+	//-----------------------------------------------------------------
+	void checkMoveFromFound () {
+		if (movedThisTick) return;
+		for (int i = 2; i <= 5; i++) {
+			if (game.isEmpty(i)) continue;
+			int topFoundCard = game.getTopCard(i);
+
+			int rank = CardCode.rank(topFoundCard);
+			int[] otherColor = CardCode.isBlack(topFoundCard) 
+				? RED_SUITS : BLACK_SUITS;
+
+			// Leftmost table top one rank higher, other color
+			int startPile = -1;
+			if (rank < 13) {
+				for (int suit: otherColor) {
+					int card = CardCode.make(rank+1, suit, true);
+					int j = game.getCardPile(card);
+					if (isTable(j) && game.getCardPos(card) == game.size(j)-1
+							&& (startPile == -1 || j < startPile))
+						startPile = j;
+				}
+			}
+			if (startPile == -1) continue;
+			
+			// Subpile to be joined: rightmost table starting one rank
+			// lower, other color (else waste top)
+			int endPile = -1;
+			if (rank > 1) {
+				for (int suit: otherColor) {
+					int card = CardCode.make(rank-1, suit, true);
+					int j = game.getCardPile(card);
+					int pos = game.getCardPos(card);
+					if (isTable(j) && pos == idxFirstFaceUpCard(j))
+						endPile = Math.max(endPile, j);
+					else if (j == 1 && pos == game.size(j)-1 && endPile == -1)
+						endPile = j;
+				}
+			}
+			if (endPile == -1) continue;
+			
+			// Make foundation card to table
+			callMove(i, startPile, 0);
+			return;
+		}
+	}
+	
+	//-----------------------------------------------------------------
+	//  Get index of first face-up card in a table pile
+	//-----------------------------------------------------------------
+	int idxFirstFaceUpCard (int p) {
+		assert(!game.isEmpty(p));
+		assert(CardCode.isFaceUp(game.getTopCard(p)));
+		return game.getFirstFaceUp(p);
+	}
+
+	//-----------------------------------------------------------------
+	//  Get number of face-down cards in a table pile
+	//-----------------------------------------------------------------
+	int numFaceDownCards (int p) {
+		return game.getNumFaceDown(p);
+	}
+
+	//-----------------------------------------------------------------
+	//  Is pile index a table?
+	//-----------------------------------------------------------------
+	static boolean isTable (int p) {
+		return p >= GameState.IDX_TABLE;
+	}
+	
+	//-----------------------------------------------------------------
+	//  Is there a king ready for an empty table?
+	//-----------------------------------------------------------------
+	boolean isKingAvailable () {
+		for (int iprime = 6; iprime <= 13; iprime++) {
+			int i = (iprime==13? 1: iprime);  // waste last
+			if (game.isEmpty(i)) continue;
+			int faceIdx = (i == 1?  // waste top only
+				game.size(i)-1 : idxFirstFaceUpCard(i));
+			int card = game.get(i, faceIdx);
+			if (CardCode.rank(card) == 13) return true;
+		}	
+		return false;
+	}
+}
+
@@ -0,0 +1,11 @@
+//********************************************************************
+//  PlayerFactory.java              @version 1.00
+//    Makes fresh players of one kind (one per game).
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+public interface PlayerFactory {
+	public PlayerInterface newPlayer (PlayerCallbacks callbacks);
+	public String getName ();
+}
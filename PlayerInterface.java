@@ -1,11 +1,11 @@
-//********************************************************************
-//  PlayerInterface.java              @version 1.00
-//    Interface to any kind of player.
-//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
-//  See the bottom of this file for any licensing information.
-//********************************************************************
-
-public interface PlayerInterface {
-	public void askNextMove ();
-}
-
+//********************************************************************
+//  PlayerInterface.java              @version 1.00
+//    Interface to any kind of player.
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+public interface PlayerInterface {
+	public void askNextMove ();
+}
+
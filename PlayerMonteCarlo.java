@@ -0,0 +1,319 @@
+//********************************************************************
+//  PlayerMonteCarlo.java              @version 1.01
+//    A look-ahead computer player for solitaire.
+//    Sees only the player view; each sample deals the unseen
+//    cards at random into the hidden places, and each candidate
+//    move is scored by playing that sample out with the greedy
+//    PlayerComputer. Keeps the greedy move unless some other
+//    move scores better over the same samples.
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+import java.util.*;
+import java.util.concurrent.*;
+
+public class PlayerMonteCarlo implements PlayerInterface {
+
+	//-----------------------------------------------------------------
+	//  Constants
+	//-----------------------------------------------------------------
+	static final int MAX_ROLLOUT_TICKS = 2000;
+	static final int MAX_CANDIDATES = GameState.MAX_MOVES + 1;
+	static final double MIN_GAIN = 1.0;   // Net wins to overrule greedy
+	static final double FOUND_WEIGHT = 0.1;  // Loss score per share on found
+
+	//-----------------------------------------------------------------
+	//  Fields
+	//-----------------------------------------------------------------
+	PlayerView game;              // Scrubbed game view
+	PlayerCallbacks callbacks;    // Callbacks to server
+	Metrics metrics;              // Null if not collecting
+	PlayerComputer greedy;        // Proposes default move
+	int numSamples;               // Samples per move decision
+	long maxNanos;                // Time budget per move (0: none)
+	ExecutorService pool;         // For parallel samples (or null)
+	int tick;                     // Move decisions this game
+
+	// Move proposed by greedy player this tick
+	int proposed;
+	boolean proposedMade;
+
+	// Candidate moves this tick (packed by Move.encode)
+	int[] candidates = new int[MAX_CANDIDATES];
+	int numCandidates;
+
+	//-----------------------------------------------------------------
+	//  Constructor
+	//-----------------------------------------------------------------
+	public PlayerMonteCarlo (PlayerCallbacks pc, int numSamples,
+			long maxNanos, ExecutorService pool) {
+		callbacks = pc;
+		metrics = pc.playerMetrics();
+		this.numSamples = numSamples;
+		this.maxNanos = maxNanos;
+		this.pool = pool;
+
+		// Greedy player proposes moves, but this player makes them
+		greedy = new PlayerComputer(new PlayerCallbacks() {
+			public PlayerView playerViewGame () { return game; }
+			public boolean playerMoveCall (int p1, int p2, int p3) {
+				proposed = Move.encode(p1, p2, p3);
+				proposedMade = true;
+				return true;
+			}
+			public Metrics playerMetrics () { return null; }
+		});
+	}
+
+	//-----------------------------------------------------------------
+	//  Factory for this player
+	//    (Pool may be null: samples then run on the game's thread,
+	//    which is best when games already run one per core.)
+	//-----------------------------------------------------------------
+	public static PlayerFactory factory (final int numSamples,
+			final long maxNanos, final ExecutorService pool) {
+		return new PlayerFactory() {
+			public PlayerInterface newPlayer (PlayerCallbacks pc) {
+				return new PlayerMonteCarlo(pc, numSamples, maxNanos, pool);
+			}
+			public String getName () {
+				return "Monte Carlo (" + numSamples + " samples)";
+			}
+		};
+	}
+
+	//-----------------------------------------------------------------
+	//  Ask me for my next move
+	//-----------------------------------------------------------------
+	public void askNextMove () {
+		game = callbacks.playerViewGame();
+		tick++;
+
+		// Greedy proposal (surrender if it makes none)
+		boolean wasMovedThisPass = greedy.movedThisPass;
+		proposedMade = false;
+		greedy.askNextMove();
+		int move = proposedMade ? proposed : Move.encode(0, 0, 0);
+
+		// Look ahead only where there is a real choice
+		if (!isForced(move)) {
+			int best = chooseMove(move, wasMovedThisPass);
+			if (best != move) {
+				move = best;
+				greedy.movedThisPass = passFlagAfter(move, wasMovedThisPass);
+			}
+		}
+		callbacks.playerMoveCall(Move.src(move), Move.dst(move), Move.idx(move));
+	}
+
+	//-----------------------------------------------------------------
+	//  Is move never worth second-guessing?
+	//    (Flips reveal a card for free; low cards to foundation
+	//    can never be needed on the table.)
+	//-----------------------------------------------------------------
+	boolean isForced (int move) {
+		int src = Move.src(move), dst = Move.dst(move);
+		if (src == dst && src >= GameState.IDX_TABLE) return true;
+		if (dst >= GameState.IDX_FOUND && dst < GameState.IDX_TABLE) {
+			int card = game.getTopCard(src);
+			return CardCode.rank(card) <= 2;
+		}
+		return false;
+	}
+
+	//-----------------------------------------------------------------
+	//  Greedy player's pass flag after a move (as in its callMove)
+	//-----------------------------------------------------------------
+	static boolean passFlagAfter (int move, boolean movedThisPass) {
+		int src = Move.src(move), dst = Move.dst(move);
+		if (src == 1 && dst == 0) return false;    // New pass
+		if (src == 0 && dst == 1) return movedThisPass;  // Draw
+		return true;
+	}
+
+	//-----------------------------------------------------------------
+	//  Score candidates over shared samples; return best move
+	//    Greedy move stands unless another beats it by MIN_GAIN.
+	//-----------------------------------------------------------------
+	int chooseMove (int greedyMove, final boolean movedThisPass) {
+		numCandidates = 0;
+		candidates[numCandidates++] = greedyMove;
+		int[] legal = new int[GameState.MAX_MOVES];
+		int numLegal = game.generateMoves(legal);
+		for (int i = 0; i < numLegal; i++) {
+			if (legal[i] != greedyMove) candidates[numCandidates++] = legal[i];
+		}
+		if (numCandidates == 1) return greedyMove;
+
+		// Same samples for all candidates, so differences are paired
+		final int[] moves = Arrays.copyOf(candidates, numCandidates);
+		final Sampler sampler = new Sampler(game);
+		final long seed = sampler.viewHash() * 31 + tick;
+		final long deadline = maxNanos > 0 ? System.nanoTime() + maxNanos : 0;
+		final Metrics sharedMetrics = metrics;
+		double[] scores = new double[moves.length];
+		if (pool == null) {
+			scoreSamples(sampler, moves, movedThisPass, seed, 0, numSamples,
+				deadline, scores, sharedMetrics);
+		}
+		else {
+			int numTasks = Math.min(numSamples,
+				Runtime.getRuntime().availableProcessors());
+			List<Future<double[]>> tasks = new ArrayList<Future<double[]>>();
+			for (int t = 0; t < numTasks; t++) {
+				final int from = t * numSamples / numTasks;
+				final int to = (t+1) * numSamples / numTasks;
+				tasks.add(pool.submit(new Callable<double[]>() {
+					public double[] call () {
+						double[] part = new double[moves.length];
+						scoreSamples(sampler, moves, movedThisPass, seed,
+							from, to, deadline, part, sharedMetrics);
+						return part;
+					}
+				}));
+			}
+			try {
+				for (Future<double[]> task: tasks) {
+					double[] part = task.get();
+					for (int i = 0; i < moves.length; i++) scores[i] += part[i];
+				}
+			}
+			catch (InterruptedException exception) {
+				Thread.currentThread().interrupt();
+				return greedyMove;
+			}
+			catch (ExecutionException exception) {
+				throw new RuntimeException(exception.getCause());
+			}
+		}
+		int best = 0;
+		for (int i = 1; i < moves.length; i++) {
+			if (scores[i] > scores[best]) best = i;
+		}
+		return scores[best] >= scores[0] + MIN_GAIN ? moves[best] : greedyMove;
+	}
+
+	//-----------------------------------------------------------------
+	//  Add scores of samples [from, to) for each move
+	//    (stops early past deadline, if any; counts state copies
+	//    if metrics not null)
+	//-----------------------------------------------------------------
+	static void scoreSamples (Sampler sampler, int[] moves, boolean movedThisPass,
+			long seed, int from, int to, long deadline, double[] scores, 
+			Metrics metrics) {
+		Rollout rollout = new Rollout();
+		int s;
+		for (s = from; s < to; s++) {
+			if (deadline != 0 && s > from && System.nanoTime() > deadline) break;
+			GameState sample = sampler.sample(
+				new SplittableRandom(GameState.gameSeed(seed, s)));
+			for (int i = 0; i < moves.length; i++) {
+				scores[i] += rollout.play(sample, moves[i], movedThisPass);
+			}
+		}
+		if (metrics != null) metrics.countCopies((long) (s - from) * moves.length);
+	}
+
+	//-----------------------------------------------------------------
+	//  Deals random full game states consistent with a view
+	//-----------------------------------------------------------------
+	static class Sampler {
+		final int cardsDrawn, maxPasses, pass;
+		final int[][] cards = new int[GameState.NUM_PILES][];
+		final int[] unseen;           // Cards in no visible place
+
+		Sampler (PlayerView view) {
+			cardsDrawn = view.getcardsDrawn();
+			maxPasses = view.getMaxPasses();
+			pass = view.getPass();
+			boolean[] seen = new boolean[CardCode.NUM_CARDS];
+			for (int p = 0; p < GameState.NUM_PILES; p++) {
+				cards[p] = new int[view.size(p)];
+				for (int i = 0; i < cards[p].length; i++) {
+					int card = view.get(p, i);
+					cards[p][i] = card;
+					if (CardCode.isKnown(card)) seen[CardCode.index(card)] = true;
+				}
+			}
+			int numUnseen = 0;
+			for (boolean s: seen) if (!s) numUnseen++;
+			unseen = new int[numUnseen];
+			for (int i = 0, j = 0; i < seen.length; i++) {
+				if (!seen[i]) unseen[j++] = CardCode.fromIndex(i);
+			}
+		}
+
+		// Hash of visible cards (seeds samples reproducibly)
+		long viewHash () {
+			long h = pass;
+			for (int[] pile: cards) {
+				h = h * 31 + pile.length;
+				for (int card: pile) h = h * 31 + card;
+			}
+			return h;
+		}
+
+		// New game state with unseen cards shuffled into hidden places
+		GameState sample (SplittableRandom random) {
+			int[] shuffled = unseen.clone();
+			for (int i = shuffled.length-1; i > 0; i--) {
+				int pick = random.nextInt(i+1);
+				int swap = shuffled[i];
+				shuffled[i] = shuffled[pick];
+				shuffled[pick] = swap;
+			}
+			GameState state = new GameState(cardsDrawn, maxPasses);
+			int next = 0;
+			for (int p = 0; p < GameState.NUM_PILES; p++) {
+				Pile pile = state.getPile(p);
+				for (int card: cards[p]) {
+					if (!CardCode.isKnown(card)) {
+						card = CardCode.isFaceUp(card)
+							? CardCode.faceUp(shuffled[next++])
+							: CardCode.faceDown(shuffled[next++]);
+					}
+					pile.add(card);
+				}
+			}
+			assert(next == shuffled.length);
+			state.setupPosition(pass);
+			return state;
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Plays a sample out with the greedy player; reusable
+	//-----------------------------------------------------------------
+	static class Rollout implements PlayerCallbacks {
+		GameState state;
+		PlayerView view;
+		LongHashSet positions = new LongHashSet(256);
+
+		public PlayerView playerViewGame () { return view; }
+		public boolean playerMoveCall (int p1, int p2, int p3) {
+			return state.playerMoveCall(p1, p2, p3);
+		}
+		public Metrics playerMetrics () { return null; }
+
+		// Score of move then greedy play: 1 if won,
+		// else small, by share of cards on foundations
+		double play (GameState sample, int move, boolean movedThisPass) {
+			state = new GameState(sample);
+			view = new PlayerView(state);
+			state.playerMoveCall(Move.src(move), Move.dst(move), Move.idx(move));
+			PlayerComputer player = new PlayerComputer(this);
+			player.movedThisPass = passFlagAfter(move, movedThisPass);
+			positions.clear();
+			for (int t = 0; t < MAX_ROLLOUT_TICKS && !state.isOver(); t++) {
+				if (!positions.add(state.getHash())) break;
+				player.askNextMove();
+			}
+			if (state.isGameWon()) return 1;
+			int onFound = 0;
+			for (int p = GameState.IDX_FOUND; p < GameState.IDX_TABLE; p++)
+				onFound += state.getPile(p).size();
+			return FOUND_WEIGHT * onFound / CardCode.NUM_CARDS;
+		}
+	}
+}
@@ -0,0 +1,80 @@
+//********************************************************************
+//  PlayerView.java              @version 1.02
+//    Read-only player view of a live game state.
+//    Hidden cards are masked on every read (as by scrubHiddenData),
+//    so nothing is copied and face-down cards never reach the player.
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+public class PlayerView {
+	private final GameState game;   // Live game (never modified here)
+
+	//-----------------------------------------------------------------
+	//  Constructor
+	//-----------------------------------------------------------------
+	public PlayerView (GameState game) {
+		this.game = game;
+	}
+
+	//-----------------------------------------------------------------
+	//  Game accessors
+	//-----------------------------------------------------------------
+	public boolean isOver () { return game.isOver(); }
+	public int getcardsDrawn () { return game.getcardsDrawn(); }
+	public int getMaxPasses () { return game.getMaxPasses(); }
+	public int getPass () { return game.getPass(); }
+
+	//-----------------------------------------------------------------
+	//  Pile accessors (by pile index)
+	//-----------------------------------------------------------------
+	public int size (int pile) { return game.getPile(pile).size(); }
+	public boolean isEmpty (int pile) { return game.getPile(pile).isEmpty(); }
+	public int getTopCard (int pile) { return get(pile, size(pile)-1); }
+
+	//-----------------------------------------------------------------
+	//  Card index accessors (see GameState)
+	//    Face-down counts show only what pile contents do; a card's
+	//    place is given only if the card is in view (else pile -1).
+	//-----------------------------------------------------------------
+	public int getNumFaceDown (int table) { return game.getNumFaceDown(table); }
+	public int getFirstFaceUp (int table) { return game.getFirstFaceUp(table); }
+
+	public int getCardPile (int card) {
+		int pile = game.getCardPile(card);
+		if (pile < 0) return -1;
+		int found = game.getPile(pile).get(game.getCardPos(card));
+		return isHidden(pile, found) ? -1 : pile;
+	}
+
+	public int getCardPos (int card) {
+		return getCardPile(card) < 0 ? -1 : game.getCardPos(card);
+	}
+
+	//-----------------------------------------------------------------
+	//  Generate legal moves (see GameState.generateMoves)
+	//    Legality depends only on face-up cards and pile sizes,
+	//    so the list reveals nothing hidden.
+	//-----------------------------------------------------------------
+	public int generateMoves (int[] moves) {
+		return game.generateMoves(moves);
+	}
+
+	//-----------------------------------------------------------------
+	//  Get card code, scrubbed if hidden from player
+	//-----------------------------------------------------------------
+	public int get (int pile, int i) {
+		int card = game.getPile(pile).get(i);
+		return isHidden(pile, card) ? CardCode.scrub(card) : card;
+	}
+
+	//-----------------------------------------------------------------
+	//  Is this card (from given pile) hidden from the player?
+	//    Deck is unseen on first pass; face-down table cards always.
+	//-----------------------------------------------------------------
+	boolean isHidden (int pile, int card) {
+		if (pile == GameState.IDX_DECK) 
+			return game.getPass() == 1;
+		return pile >= GameState.IDX_TABLE && !CardCode.isFaceUp(card);
+	}
+}
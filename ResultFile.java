@@ -0,0 +1,237 @@
+//********************************************************************
+//  ResultFile.java              @version 1.02
+//    Results of a run (or shard of one) as a compact binary file:
+//    per ruleset, the game-number ranges played and their stats.
+//    Files from runs with the same master seed, deal source and
+//    player merge into the same results as one run over all games.
+//    Run: java ResultFile OUTFILE INFILE...  (merge shards)
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+public class ResultFile {
+
+	//-----------------------------------------------------------------
+	//  Constants
+	//-----------------------------------------------------------------
+	static final int MAGIC = 0x4B525332;    // "KRS2"
+	static final String SEEDED = "seeded";  // Deals from master seed
+
+	//-----------------------------------------------------------------
+	//  Results for one ruleset
+	//    Ranges are [first, end) pairs of game numbers, sorted and
+	//    disjoint; adjacent ranges are joined.
+	//-----------------------------------------------------------------
+	static class Entry {
+		final int cardsDrawn, maxPasses;
+		final List<long[]> ranges = new ArrayList<long[]>();
+		final RunStats stats = new RunStats();
+
+		Entry (int cardsDrawn, int maxPasses) {
+			this.cardsDrawn = cardsDrawn;
+			this.maxPasses = maxPasses;
+		}
+
+		// Add games [first, end) with their stats
+		void add (long first, long end, RunStats more) {
+			addRange(first, end);
+			stats.merge(more);
+		}
+
+		// Add range of games (must not overlap those held)
+		void addRange (long first, long end) {
+			if (end <= first) return;
+			int i = 0;
+			while (i < ranges.size() && ranges.get(i)[1] <= first) i++;
+			if (i < ranges.size() && ranges.get(i)[0] < end) {
+				throw new IllegalArgumentException("Games " + first + "-" + (end-1)
+					+ " overlap results already held for "
+					+ GameServer.ruleName(cardsDrawn, maxPasses));
+			}
+			ranges.add(i, new long[] {first, end});
+			for (int j = ranges.size()-1; j > 0; j--) {
+				long[] low = ranges.get(j-1), high = ranges.get(j);
+				if (low[1] == high[0]) {
+					low[1] = high[1];
+					ranges.remove(j);
+				}
+			}
+		}
+
+		String rangeString () {
+			StringBuilder s = new StringBuilder();
+			for (long[] range: ranges) {
+				s.append((s.length() > 0 ? ", " : "") + range[0] + "-" + (range[1]-1));
+			}
+			return s.toString();
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Fields
+	//-----------------------------------------------------------------
+	final long masterSeed;
+	final String dealSource;     // SEEDED, or DealCorpus.describe()
+	final String playerName;
+	final List<Entry> entries = new ArrayList<Entry>();
+
+	//-----------------------------------------------------------------
+	//  Constructor
+	//-----------------------------------------------------------------
+	public ResultFile (long masterSeed, String dealSource, String playerName) {
+		this.masterSeed = masterSeed;
+		this.dealSource = dealSource;
+		this.playerName = playerName;
+	}
+
+	//-----------------------------------------------------------------
+	//  Get entry for ruleset (made if new)
+	//-----------------------------------------------------------------
+	public Entry getEntry (int cardsDrawn, int maxPasses) {
+		for (Entry entry: entries) {
+			if (entry.cardsDrawn == cardsDrawn && entry.maxPasses == maxPasses)
+				return entry;
+		}
+		Entry entry = new Entry(cardsDrawn, maxPasses);
+		entries.add(entry);
+		return entry;
+	}
+
+	//-----------------------------------------------------------------
+	//  Merge in another file's results (same run)
+	//-----------------------------------------------------------------
+	public void merge (ResultFile other) {
+		if (!isSameRun(other.masterSeed, other.dealSource, other.playerName)) {
+			throw new IllegalArgumentException("Results are from different runs: seed "
+				+ other.masterSeed + ", " + other.dealSource + ", " + other.playerName);
+		}
+		for (Entry entry: other.entries) {
+			Entry mine = getEntry(entry.cardsDrawn, entry.maxPasses);
+			for (long[] range: entry.ranges) {
+				mine.addRange(range[0], range[1]);
+			}
+			mine.stats.merge(entry.stats);
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Are these results from a run with given settings?
+	//-----------------------------------------------------------------
+	public boolean isSameRun (long seed, String source, String player) {
+		return seed == masterSeed && source.equals(dealSource) 
+			&& player.equals(playerName);
+	}
+
+	//-----------------------------------------------------------------
+	//  Write to file
+	//    Written in full to a temporary file, synced, then moved 
+	//    over the old file; so a crash leaves old or new, never part.
+	//-----------------------------------------------------------------
+	public void write (String fileName) throws IOException {
+		Path target = Paths.get(fileName).toAbsolutePath();
+		Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+		FileOutputStream file = new FileOutputStream(temp.toFile());
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file));
+		try {
+			out.writeInt(MAGIC);
+			out.writeLong(masterSeed);
+			out.writeUTF(dealSource);
+			out.writeUTF(playerName);
+			out.writeInt(entries.size());
+			for (Entry entry: entries) {
+				out.writeInt(entry.cardsDrawn);
+				out.writeInt(entry.maxPasses);
+				out.writeInt(entry.ranges.size());
+				for (long[] range: entry.ranges) {
+					out.writeLong(range[0]);
+					out.writeLong(range[1]);
+				}
+				entry.stats.write(out);
+			}
+			out.flush();
+			file.getFD().sync();
+		}
+		finally {
+			out.close();
+		}
+		try {
+			Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE,
+				StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (AtomicMoveNotSupportedException exception) {
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Read from file
+	//-----------------------------------------------------------------
+	public static ResultFile read (String fileName) throws IOException {
+		DataInputStream in = new DataInputStream(
+			new BufferedInputStream(new FileInputStream(fileName)));
+		try {
+			if (in.readInt() != MAGIC)
+				throw new IOException("Not a result file: " + fileName);
+			ResultFile results = new ResultFile(in.readLong(), in.readUTF(), 
+				in.readUTF());
+			int numEntries = in.readInt();
+			for (int i = 0; i < numEntries; i++) {
+				Entry entry = results.getEntry(in.readInt(), in.readInt());
+				int numRanges = in.readInt();
+				for (int j = 0; j < numRanges; j++) {
+					entry.ranges.add(new long[] {in.readLong(), in.readLong()});
+				}
+				entry.stats.merge(RunStats.read(in));
+			}
+			return results;
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Report lines for all rulesets
+	//-----------------------------------------------------------------
+	public void print (PrintStream out, boolean histograms) {
+		out.println("Master seed: " + masterSeed);
+		out.println("Deals: " + dealSource);
+		out.println("Player: " + playerName);
+		for (Entry entry: entries) {
+			out.println(GameServer.ruleName(entry.cardsDrawn, entry.maxPasses)
+				+ ": " + entry.stats.summary(RunStats.Z_95));
+			out.println("  Games: " + entry.rangeString());
+			if (histograms) out.println(entry.stats.histograms());
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Main method: merge shard files and report
+	//-----------------------------------------------------------------
+	public static void main (String[] args) {
+		if (args.length < 2) {
+			System.err.println("Usage: java ResultFile OUTFILE INFILE...");
+			System.exit(2);
+		}
+		try {
+			ResultFile merged = read(args[1]);
+			for (int i = 2; i < args.length; i++) {
+				merged.merge(read(args[i]));
+			}
+			merged.write(args[0]);
+			merged.print(System.out, false);
+		}
+		catch (IOException exception) {
+			System.err.println("Error: " + exception.getMessage());
+			System.exit(1);
+		}
+		catch (IllegalArgumentException exception) {
+			System.err.println("Error: " + exception.getMessage());
+			System.exit(1);
+		}
+	}
+}
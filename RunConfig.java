@@ -0,0 +1,267 @@
+//********************************************************************
+//  RunConfig.java              @version 1.11
+//    Settings for one run of the game server, with defaults,
+//    parsed from the command line.
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class RunConfig {
+
+	//-----------------------------------------------------------------
+	//  Run modes
+	//-----------------------------------------------------------------
+	static final int MODE_PLAY = 0;       // One player, win rates
+	static final int MODE_COMPARE = 1;    // Paired players on same deals
+	static final int MODE_SOLVE = 2;      // Full-information solver
+
+	static final int INF = Integer.MAX_VALUE;   // Unlimited passes
+
+	//-----------------------------------------------------------------
+	//  Settings (defaults as for a plain run)
+	//-----------------------------------------------------------------
+	int mode = MODE_PLAY;
+	int[][] rules = {{1, 1}, {3, 3}, {3, INF}, {1, INF}};  // {draw, passes}
+	int numGames = 100000;
+	long masterSeed = ThreadLocalRandom.current().nextLong();
+	boolean seedGiven = false;
+	int numThreads = Runtime.getRuntime().availableProcessors();
+	int maxMoves = 100000;       // Backstop only (loops end on repeat)
+	boolean viewGames = false;
+	boolean showProgbar = true;
+	boolean showHistograms = false;
+	boolean showHelp = false;
+	double targetMargin = 0;     // 0: play all games
+	double compareStopZ = 3.0;   // 0: play all games
+	long solverMaxNodes = 1000000;
+	boolean maxNodesGiven = false;
+	String solveCacheFile = null;  // Null: every deal solved afresh
+	double tableGigabytes = 0;   // 0: each solver thread its own table
+	String recordFile = null;    // Null: not recording
+	String metricsFile = null;   // Null: not collecting
+	int metricsPeriodSecs = 10;
+	int shardIndex = 0;          // Shard k of n plays its share of games
+	int numShards = 1;
+	String resultFile = null;    // Null: results only printed
+	String checkpointFile = null;  // Null: no checkpoints
+	int checkpointSecs = 60;
+	boolean resume = false;      // Continue from checkpoint file
+	String corpusFile = null;    // Null: deals from master seed
+	PlayerFactory player = PlayerComputer.factory(true);
+	PlayerFactory[] comparePlayers = {
+		PlayerComputer.factory(true),
+		PlayerComputer.factory(false)
+	};
+
+	//-----------------------------------------------------------------
+	//  Usage message
+	//-----------------------------------------------------------------
+	static final String USAGE =
+		"Usage: java GameServer [options]\n"
+		+ "  --rules LIST        rulesets as draw/passes, e.g. 1/1,3/3,3/inf\n"
+		+ "  --games N           games (deals) per ruleset [100000]\n"
+		+ "  --seed S            master seed [random]\n"
+		+ "  --corpus FILE       play deals from corpus (see DealCorpus)\n"
+		+ "  --threads T         worker threads [all cores]\n"
+		+ "  --player P          player: greedy, greedy-rtl, mc[:samples[:ms]]\n"
+		+ "  --compare P1,P2...  play players on the same deals (paired)\n"
+		+ "  --solve             run the full-information solver instead\n"
+		+ "  --max-nodes N       solver node limit per deal [1000000]\n"
+		+ "  --solve-cache FILE  keep solver results in file; skip known deals\n"
+		+ "  --table-gb G        share one solver table of G gigabytes\n"
+		+ "  --target-margin M   stop a ruleset at this margin of error\n"
+		+ "  --stop-z Z          stop a comparison at this z (0: never) [3.0]\n"
+		+ "  --max-moves N       backstop move cap per game [100000]\n"
+		+ "  --record FILE       write game records to file\n"
+		+ "  --metrics FILE      write metrics snapshots (JSON lines)\n"
+		+ "  --metrics-period S  seconds between snapshots [10]\n"
+		+ "  --shard K/N         play shard K (from 0) of N of the games\n"
+		+ "  --results FILE      write mergeable result file\n"
+		+ "  --checkpoint FILE   save progress to file as games finish\n"
+		+ "  --checkpoint-secs S seconds between checkpoints [60]\n"
+		+ "  --resume            continue from checkpoint file\n"
+		+ "  --histograms        print move and pass histograms\n"
+		+ "  --no-progress       no progress bar\n"
+		+ "  --view              print every game (one thread)\n"
+		+ "  --help              this message";
+
+	// Options that take a value
+	static final Set<String> VALUE_OPTIONS = new HashSet<String>(Arrays.asList(
+		"--rules", "--games", "--seed", "--corpus", "--threads", "--player",
+		"--compare", "--max-nodes", "--solve-cache", "--table-gb", 
+		"--target-margin", "--stop-z", "--max-moves", "--record", "--metrics",
+		"--metrics-period", "--shard", "--results", "--checkpoint", 
+		"--checkpoint-secs"));
+
+	//-----------------------------------------------------------------
+	//  Parse command-line arguments
+	//    Throws IllegalArgumentException with a message if bad.
+	//-----------------------------------------------------------------
+	public static RunConfig parse (String[] args) {
+		RunConfig config = new RunConfig();
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("--solve")) config.mode = MODE_SOLVE;
+			else if (arg.equals("--view")) config.viewGames = true;
+			else if (arg.equals("--no-progress")) config.showProgbar = false;
+			else if (arg.equals("--histograms")) config.showHistograms = true;
+			else if (arg.equals("--help")) config.showHelp = true;
+			else if (arg.equals("--resume")) config.resume = true;
+			else if (!VALUE_OPTIONS.contains(arg))
+				throw new IllegalArgumentException("Unknown option: " + arg);
+			else if (i+1 >= args.length)
+				throw new IllegalArgumentException("Missing value for " + arg);
+			else {
+				String value = args[++i];
+				if (arg.equals("--rules")) config.rules = parseRules(value);
+				else if (arg.equals("--games")) config.numGames = parseInt(arg, value, 1);
+				else if (arg.equals("--seed")) {
+					config.masterSeed = parseLong(arg, value);
+					config.seedGiven = true;
+				}
+				else if (arg.equals("--threads")) config.numThreads = parseInt(arg, value, 1);
+				else if (arg.equals("--player")) config.player = parsePlayer(value);
+				else if (arg.equals("--compare")) {
+					String[] names = value.split(",");
+					if (names.length < 2)
+						throw new IllegalArgumentException("Compare needs two or more players");
+					config.comparePlayers = new PlayerFactory[names.length];
+					for (int j = 0; j < names.length; j++)
+						config.comparePlayers[j] = parsePlayer(names[j]);
+					config.mode = MODE_COMPARE;
+				}
+				else if (arg.equals("--max-nodes")) {
+					config.solverMaxNodes = parseLong(arg, value);
+					config.maxNodesGiven = true;
+				}
+				else if (arg.equals("--solve-cache")) config.solveCacheFile = value;
+				else if (arg.equals("--table-gb"))
+					config.tableGigabytes = parseDouble(arg, value);
+				else if (arg.equals("--target-margin"))
+					config.targetMargin = parseDouble(arg, value);
+				else if (arg.equals("--stop-z"))
+					config.compareStopZ = parseDouble(arg, value);
+				else if (arg.equals("--max-moves"))
+					config.maxMoves = parseInt(arg, value, 1);
+				else if (arg.equals("--record")) config.recordFile = value;
+				else if (arg.equals("--metrics")) config.metricsFile = value;
+				else if (arg.equals("--metrics-period"))
+					config.metricsPeriodSecs = parseInt(arg, value, 1);
+				else if (arg.equals("--shard")) {
+					String[] parts = value.split("/");
+					if (parts.length != 2)
+						throw new IllegalArgumentException("Bad shard: " + value);
+					config.shardIndex = parseInt(arg, parts[0], 0);
+					config.numShards = parseInt(arg, parts[1], 1);
+					if (config.shardIndex >= config.numShards)
+						throw new IllegalArgumentException("Bad shard: " + value);
+				}
+				else if (arg.equals("--results")) config.resultFile = value;
+				else if (arg.equals("--corpus")) config.corpusFile = value;
+				else if (arg.equals("--checkpoint")) config.checkpointFile = value;
+				else if (arg.equals("--checkpoint-secs"))
+					config.checkpointSecs = parseInt(arg, value, 0);
+				else throw new IllegalArgumentException("Unknown option: " + arg);
+			}
+		}
+
+		if (config.resume && config.checkpointFile == null)
+			throw new IllegalArgumentException("Resume needs a checkpoint file");
+		if ((config.resume || config.checkpointFile != null) && config.mode != MODE_PLAY)
+			throw new IllegalArgumentException("Checkpoints and resume are only for playing games");
+		if ((config.numShards > 1 || config.resultFile != null) && config.mode != MODE_PLAY)
+			throw new IllegalArgumentException("Shards and result files are only for playing games");
+		if ((config.recordFile != null || config.metricsFile != null) && config.mode != MODE_PLAY)
+			throw new IllegalArgumentException("Records and metrics are only for playing games");
+		if ((config.maxNodesGiven || config.tableGigabytes != 0) && config.mode != MODE_SOLVE)
+			throw new IllegalArgumentException("Node limits and solver tables are only for solving");
+		if (config.solveCacheFile != null && config.mode != MODE_SOLVE)
+			throw new IllegalArgumentException("Solve caches are only for solving");
+		if (config.corpusFile != null && config.recordFile != null)
+			throw new IllegalArgumentException("Records replay by seed, so not from a corpus");
+
+		// Corpus deals don't use the seed; fix it so shard results merge
+		if (config.corpusFile != null && !config.seedGiven) config.masterSeed = 0;
+
+		// Viewing shares one output file, so keep that to a single thread
+		if (config.viewGames) config.numThreads = 1;
+		return config;
+	}
+
+	//-----------------------------------------------------------------
+	//  Range of game numbers for this shard: [firstGame, endGame)
+	//-----------------------------------------------------------------
+	int firstGame () { return (int) ((long) numGames * shardIndex / numShards); }
+	int endGame () { return (int) ((long) numGames * (shardIndex+1) / numShards); }
+
+	//-----------------------------------------------------------------
+	//  Parse list of rulesets like "1/1,3/inf"
+	//-----------------------------------------------------------------
+	static int[][] parseRules (String value) {
+		String[] items = value.split(",");
+		int[][] rules = new int[items.length][];
+		for (int i = 0; i < items.length; i++) {
+			String[] parts = items[i].split("/");
+			if (parts.length != 2)
+				throw new IllegalArgumentException("Bad ruleset: " + items[i]);
+			int draw = parseInt("draw", parts[0], 1);
+			int passes = parts[1].equalsIgnoreCase("inf") ? INF
+				: parseInt("passes", parts[1], 1);
+			rules[i] = new int[] {draw, passes};
+		}
+		return rules;
+	}
+
+	//-----------------------------------------------------------------
+	//  Parse player name (see USAGE)
+	//-----------------------------------------------------------------
+	static PlayerFactory parsePlayer (String value) {
+		String[] parts = value.split(":");
+		if (parts[0].equals("greedy") && parts.length == 1)
+			return PlayerComputer.factory(true);
+		if (parts[0].equals("greedy-rtl") && parts.length == 1)
+			return PlayerComputer.factory(false);
+		if (parts[0].equals("mc") && parts.length <= 3) {
+			int samples = parts.length > 1 ? parseInt("samples", parts[1], 1) : 8;
+			long millis = parts.length > 2 ? parseInt("ms", parts[2], 0) : 0;
+			return PlayerMonteCarlo.factory(samples, millis * 1000000, null);
+		}
+		throw new IllegalArgumentException("Unknown player: " + value);
+	}
+
+	//-----------------------------------------------------------------
+	//  Number parsers (with option name for messages)
+	//-----------------------------------------------------------------
+	static int parseInt (String name, String value, int min) {
+		try {
+			int n = Integer.parseInt(value);
+			if (n < min) throw new IllegalArgumentException(
+				"Value for " + name + " must be at least " + min + ": " + value);
+			return n;
+		}
+		catch (NumberFormatException exception) {
+			throw new IllegalArgumentException("Bad number for " + name + ": " + value);
+		}
+	}
+
+	static long parseLong (String name, String value) {
+		try {
+			return Long.parseLong(value);
+		}
+		catch (NumberFormatException exception) {
+			throw new IllegalArgumentException("Bad number for " + name + ": " + value);
+		}
+	}
+
+	static double parseDouble (String name, String value) {
+		try {
+			return Double.parseDouble(value);
+		}
+		catch (NumberFormatException exception) {
+			throw new IllegalArgumentException("Bad number for " + name + ": " + value);
+		}
+	}
+}
@@ -0,0 +1,151 @@
+//********************************************************************
+//  RunStats.java              @version 1.02
+//    Streaming statistics for a run of games: win rate with
+//    Wilson confidence interval, plus move and pass distributions.
+//    Blocks of games each fill their own instance, then merge.
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+import java.io.*;
+import java.text.DecimalFormat;
+
+public class RunStats {
+
+	//-----------------------------------------------------------------
+	//  Constants
+	//-----------------------------------------------------------------
+	static final double Z_95 = 1.96;     // Two-sided 95% confidence
+	static final int MOVE_BIN = 10;      // Moves per histogram bin
+	static final int MOVE_BINS = 101;    // Last bin is overflow
+	static final int PASS_BINS = 17;     // Last bin is overflow
+
+	//-----------------------------------------------------------------
+	//  Fields
+	//-----------------------------------------------------------------
+	private long games;
+	private long wins;
+	private long totalMoves;
+	private long totalPasses;
+	private final long[] moveHist = new long[MOVE_BINS];
+	private final long[] passHist = new long[PASS_BINS];
+
+	//-----------------------------------------------------------------
+	//  Add result of one game
+	//-----------------------------------------------------------------
+	public void addGame (boolean won, int numMoves, int numPasses) {
+		games++;
+		if (won) wins++;
+		totalMoves += numMoves;
+		totalPasses += numPasses;
+		moveHist[Math.min(numMoves / MOVE_BIN, MOVE_BINS-1)]++;
+		passHist[Math.min(numPasses, PASS_BINS-1)]++;
+	}
+
+	//-----------------------------------------------------------------
+	//  Add in all games of another instance
+	//-----------------------------------------------------------------
+	public void merge (RunStats other) {
+		games += other.games;
+		wins += other.wins;
+		totalMoves += other.totalMoves;
+		totalPasses += other.totalPasses;
+		for (int i = 0; i < MOVE_BINS; i++)
+			moveHist[i] += other.moveHist[i];
+		for (int i = 0; i < PASS_BINS; i++)
+			passHist[i] += other.passHist[i];
+	}
+
+	//-----------------------------------------------------------------
+	//  Write all counts (for result files)
+	//-----------------------------------------------------------------
+	public void write (DataOutput out) throws IOException {
+		out.writeLong(games);
+		out.writeLong(wins);
+		out.writeLong(totalMoves);
+		out.writeLong(totalPasses);
+		out.writeShort(MOVE_BINS);
+		for (long count: moveHist) out.writeLong(count);
+		out.writeShort(PASS_BINS);
+		for (long count: passHist) out.writeLong(count);
+	}
+
+	//-----------------------------------------------------------------
+	//  Read counts written by write()
+	//-----------------------------------------------------------------
+	public static RunStats read (DataInput in) throws IOException {
+		RunStats stats = new RunStats();
+		stats.games = in.readLong();
+		stats.wins = in.readLong();
+		stats.totalMoves = in.readLong();
+		stats.totalPasses = in.readLong();
+		if (in.readShort() != MOVE_BINS) throw new IOException("Bad move bins");
+		for (int i = 0; i < MOVE_BINS; i++) stats.moveHist[i] = in.readLong();
+		if (in.readShort() != PASS_BINS) throw new IOException("Bad pass bins");
+		for (int i = 0; i < PASS_BINS; i++) stats.passHist[i] = in.readLong();
+		return stats;
+	}
+
+	//-----------------------------------------------------------------
+	//  Accessors
+	//-----------------------------------------------------------------
+	public long getGames () { return games; }
+	public long getWins () { return wins; }
+	public double getWinRate () { return games == 0 ? 0 : (double) wins/games; }
+	public double getMeanMoves () { return games == 0 ? 0 : (double) totalMoves/games; }
+	public double getMeanPasses () { return games == 0 ? 0 : (double) totalPasses/games; }
+	public long getMoveCount (int bin) { return moveHist[bin]; }
+	public long getPassCount (int bin) { return passHist[bin]; }
+
+	//-----------------------------------------------------------------
+	//  Wilson score interval for win rate
+	//    (well-behaved near 0 and 1, unlike the normal approximation)
+	//-----------------------------------------------------------------
+	public double wilsonCenter (double z) {
+		if (games == 0) return 0.5;
+		double p = getWinRate(), z2n = z*z/games;
+		return (p + z2n/2) / (1 + z2n);
+	}
+	public double wilsonMargin (double z) {
+		if (games == 0) return 0.5;
+		double p = getWinRate(), z2n = z*z/games;
+		return z * Math.sqrt(p*(1-p)/games + z2n/(4*games)) / (1 + z2n);
+	}
+	public double wilsonLow (double z) { return wilsonCenter(z) - wilsonMargin(z); }
+	public double wilsonHigh (double z) { return wilsonCenter(z) + wilsonMargin(z); }
+
+	//-----------------------------------------------------------------
+	//  Is the margin of error at or below target?
+	//-----------------------------------------------------------------
+	public boolean isConverged (double targetMargin, double z) {
+		return games > 0 && wilsonMargin(z) <= targetMargin;
+	}
+
+	//-----------------------------------------------------------------
+	//  Report lines: win rate with interval, then distributions
+	//-----------------------------------------------------------------
+	public String summary (double z) {
+		DecimalFormat pct = new DecimalFormat("#0.0");
+		DecimalFormat avg = new DecimalFormat("#0.00");
+		return "won " + pct.format(getWinRate() * 100) + "% "
+			+ "[" + pct.format(wilsonLow(z) * 100) + "%, "
+			+ pct.format(wilsonHigh(z) * 100) + "%] "
+			+ "of " + games + " games; "
+			+ "moves avg " + avg.format(getMeanMoves()) + ", "
+			+ "passes avg " + avg.format(getMeanPasses());
+	}
+
+	public String histograms () {
+		StringBuilder s = new StringBuilder("  Moves:");
+		for (int i = 0; i < MOVE_BINS; i++) {
+			if (moveHist[i] > 0) s.append(" " + (i*MOVE_BIN)
+				+ (i == MOVE_BINS-1 ? "+" : "") + ":" + moveHist[i]);
+		}
+		s.append("\n  Passes:");
+		for (int i = 0; i < PASS_BINS; i++) {
+			if (passHist[i] > 0) s.append(" " + i
+				+ (i == PASS_BINS-1 ? "+" : "") + ":" + passHist[i]);
+		}
+		return s.toString();
+	}
+}
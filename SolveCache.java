@@ -0,0 +1,225 @@
+//********************************************************************
+//  SolveCache.java              @version 1.01
+//    Persistent store of solver results by (deal, ruleset), so
+//    repeat runs skip deals already solved. Results are appended
+//    to a log file; an index in memory maps each key to its
+//    latest record, with recent results held in an LRU cache.
+//    One cache is shared by all solver threads of a run.
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+public class SolveCache {
+
+	//-----------------------------------------------------------------
+	//  File format (big-endian)
+	//    File header: int MAGIC, int Solver.VERSION, long 
+	//      Zobrist.fingerprint() (results hold only for the same
+	//      solver and deal hashes, so a file made under others is
+	//      refused)
+	//    Each record: long dealHash, byte cardsDrawn, int maxPasses,
+	//      byte result (Solver.SOLVED etc.), long nodes searched,
+	//      long node limit
+	//  A later record for the same key replaces an earlier one. A
+	//  partial record at the end (crash while writing) is ignored.
+	//-----------------------------------------------------------------
+	static final int MAGIC = 0x4B534332;   // "KSC2"
+	static final int HEADER_SIZE = 16;
+	static final int RECORD_SIZE = 30;
+	static final int LRU_SIZE = 1 << 14;
+
+	//-----------------------------------------------------------------
+	//  Key: deal and ruleset
+	//    (A fresh deal's hash is the same under every ruleset,
+	//    being at pass 1 either way.)
+	//-----------------------------------------------------------------
+	static final class Key {
+		final long dealHash;
+		final int cardsDrawn, maxPasses;
+
+		Key (long dealHash, int cardsDrawn, int maxPasses) {
+			this.dealHash = dealHash;
+			this.cardsDrawn = cardsDrawn;
+			this.maxPasses = maxPasses;
+		}
+
+		public boolean equals (Object other) {
+			if (!(other instanceof Key)) return false;
+			Key key = (Key) other;
+			return key.dealHash == dealHash && key.cardsDrawn == cardsDrawn
+				&& key.maxPasses == maxPasses;
+		}
+
+		public int hashCode () {
+			return (int) (dealHash ^ (dealHash >>> 32)) * 31
+				+ cardsDrawn * 17 + maxPasses;
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Result for one key: solver result and effort spent
+	//-----------------------------------------------------------------
+	static final class Result {
+		final int result;
+		final long nodes, maxNodes;
+
+		Result (int result, long nodes, long maxNodes) {
+			this.result = result;
+			this.nodes = nodes;
+			this.maxNodes = maxNodes;
+		}
+
+		// Does this answer a solve with given node limit?
+		// (Unknown only if that limit is no more than tried before.)
+		boolean answers (long limit) {
+			return result != Solver.UNKNOWN || limit <= maxNodes;
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Fields (guarded by this, except counters)
+	//-----------------------------------------------------------------
+	FileChannel channel;
+	long fileEnd;
+	final Map<Key, Long> index = new HashMap<Key, Long>();   // Record offsets
+	final Map<Key, Result> recent = new LinkedHashMap<Key, Result>(16, 0.75f, true) {
+		protected boolean removeEldestEntry (Map.Entry<Key, Result> eldest) {
+			return size() > LRU_SIZE;
+		}
+	};
+	final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+
+	final LongAdder hits = new LongAdder();
+	final LongAdder misses = new LongAdder();
+
+	//-----------------------------------------------------------------
+	//  Open (append to file, writing header if new; index records)
+	//    Refuses a file from another solver version or Zobrist key
+	//    table (its results may not hold now; start a new file).
+	//-----------------------------------------------------------------
+	public void open (String fileName) throws IOException {
+		channel = FileChannel.open(Paths.get(fileName),
+			StandardOpenOption.CREATE, StandardOpenOption.READ,
+			StandardOpenOption.WRITE);
+		long size = channel.size();
+		if (size == 0) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(Solver.VERSION)
+				.putLong(Zobrist.fingerprint()).flip();
+			while (header.hasRemaining()) channel.write(header, header.position());
+			size = HEADER_SIZE;
+		}
+		else {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining() 
+					&& channel.read(header, header.position()) >= 0);
+			header.flip();
+			if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+				channel.close();
+				throw new IOException("Not a solve cache: " + fileName);
+			}
+			if (header.getInt() != Solver.VERSION 
+					|| header.getLong() != Zobrist.fingerprint()) {
+				channel.close();
+				throw new IOException("Solve cache is from another solver version: " 
+					+ fileName);
+			}
+		}
+
+		// Index whole records; drop any partial one at end
+		fileEnd = HEADER_SIZE + (size - HEADER_SIZE) / RECORD_SIZE * RECORD_SIZE;
+		channel.truncate(fileEnd);
+		ByteBuffer in = ByteBuffer.allocate(RECORD_SIZE * 4096);
+		long offset = HEADER_SIZE;
+		while (offset < fileEnd) {
+			in.clear();
+			in.limit((int) Math.min(in.capacity(), fileEnd - offset));
+			long at = offset;
+			while (in.hasRemaining()) {
+				if (channel.read(in, at + in.position()) < 0)
+					throw new EOFException("Solve cache truncated while reading");
+			}
+			in.flip();
+			while (in.remaining() >= RECORD_SIZE) {
+				index.put(new Key(in.getLong(), in.get(), in.getInt()), offset);
+				in.position(in.position() + RECORD_SIZE - 13);
+				offset += RECORD_SIZE;
+			}
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Close file
+	//-----------------------------------------------------------------
+	public synchronized void close () throws IOException {
+		channel.force(false);
+		channel.close();
+	}
+
+	//-----------------------------------------------------------------
+	//  Accessors
+	//-----------------------------------------------------------------
+	public synchronized int size () { return index.size(); }
+	public long getHits () { return hits.sum(); }
+	public long getMisses () { return misses.sum(); }
+
+	//-----------------------------------------------------------------
+	//  Known result for deal under its ruleset and node limit
+	//    Returns Solver result, or -1 if it must be solved.
+	//-----------------------------------------------------------------
+	public int lookup (GameState deal, long maxNodes) throws IOException {
+		Result found = get(new Key(deal.getHash(),
+			deal.getcardsDrawn(), deal.getMaxPasses()));
+		if (found != null && found.answers(maxNodes)) {
+			hits.increment();
+			return found.result;
+		}
+		misses.increment();
+		return -1;
+	}
+
+	//-----------------------------------------------------------------
+	//  Get result for key (from LRU, else from file), or null
+	//-----------------------------------------------------------------
+	synchronized Result get (Key key) throws IOException {
+		Result found = recent.get(key);
+		if (found != null) return found;
+		Long offset = index.get(key);
+		if (offset == null) return null;
+		record.clear();
+		while (record.hasRemaining()) {
+			if (channel.read(record, offset + record.position()) < 0)
+				throw new EOFException("Solve cache record missing");
+		}
+		record.flip();
+		record.position(13);
+		found = new Result(record.get(), record.getLong(), record.getLong());
+		recent.put(key, found);
+		return found;
+	}
+
+	//-----------------------------------------------------------------
+	//  Store result of solving deal
+	//-----------------------------------------------------------------
+	public synchronized void put (GameState deal, int result, long nodes,
+			long maxNodes) throws IOException {
+		Key key = new Key(deal.getHash(), deal.getcardsDrawn(), deal.getMaxPasses());
+		record.clear();
+		record.putLong(key.dealHash).put((byte) key.cardsDrawn).putInt(key.maxPasses)
+			.put((byte) result).putLong(nodes).putLong(maxNodes);
+		record.flip();
+		while (record.hasRemaining()) {
+			channel.write(record, fileEnd + record.position());
+		}
+		index.put(key, fileEnd);
+		recent.put(key, new Result(result, nodes, maxNodes));
+		fileEnd += RECORD_SIZE;
+	}
+}
@@ -0,0 +1,429 @@
+//********************************************************************
+//  Solver.java              @version 1.08
+//    Full-information solver (sees every card, unlike any player).
+//    Depth-first search over moves, with a transposition table of
+//    Zobrist hashes and safe automatic moves to foundation.
+//    Searches one game state in place (make/unmake moves), 
+//    choosing among moves from GameState.generateMoves().
+//    Gives an upper bound on what any real player could win.
+//    Solvers on many threads may share one off-heap table of
+//    positions seen (TranspositionTable) instead of each its own.
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+import java.util.Arrays;
+
+public class Solver {
+
+	//-----------------------------------------------------------------
+	//  Constants
+	//-----------------------------------------------------------------
+	public static final int UNSOLVABLE = 0;
+	public static final int SOLVED = 1;
+	public static final int UNKNOWN = 2;    // Search limit reached
+
+	// Version of search and pruning: bump on any change that may 
+	// give a different result for some deal (kept in SolveCache)
+	public static final int VERSION = 1;
+
+	static final int MAX_DEPTH = 1000;
+	static final int MAX_NODE_MOVES = 512;   // Legal plus waste moves
+
+	//-----------------------------------------------------------------
+	//  Fields
+	//-----------------------------------------------------------------
+	long maxNodes;             // Node budget per solve
+	long nodes;                // Nodes searched in last solve
+	boolean aborted;           // Budget or depth limit hit
+	LongHashSet visited;       // Transposition table (positions seen)
+	TranspositionTable table;  // Shared table instead (or null)
+	int generation;            // This solve's search in shared table
+	long salt;                 // Keys of this solve in shared table
+	Pile deckScratch = new Pile();
+	Pile wasteScratch = new Pile();
+
+	GameState game;            // Position being searched
+	Move[] made = new Move[256];  // Moves made, for unmaking
+	int numMade;
+	int[][] moveBufs = new int[MAX_DEPTH][];   // Per-depth moves
+	int[] legal = new int[GameState.MAX_MOVES];  // All legal moves
+
+	//-----------------------------------------------------------------
+	//  Constructor
+	//-----------------------------------------------------------------
+	public Solver (long maxNodes) {
+		this(maxNodes, null);
+	}
+
+	//-----------------------------------------------------------------
+	//  Constructor (sharing table of positions seen, if not null)
+	//    Positions near the root are kept over deeper ones, so a
+	//    small table costs extra search, not wrong answers.
+	//-----------------------------------------------------------------
+	public Solver (long maxNodes, TranspositionTable table) {
+		this.maxNodes = maxNodes;
+		this.table = table;
+		if (table == null) visited = new LongHashSet(1 << 16);
+		for (int i = 0; i < made.length; i++) {
+			made[i] = new Move();
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Accessors
+	//-----------------------------------------------------------------
+	public long getNodes () { return nodes; }
+
+	//-----------------------------------------------------------------
+	//  Solve from given position (not modified)
+	//    Returns SOLVED, UNSOLVABLE, or UNKNOWN.
+	//-----------------------------------------------------------------
+	public int solve (GameState start) {
+		nodes = 0;
+		aborted = false;
+		if (table == null) 
+			visited.clear();
+		else {
+			generation = table.beginSearch();
+			salt = GameState.gameSeed(0x2012L, generation);
+		}
+		game = new GameState(start);
+		numMade = 0;
+		boolean won;
+		try {
+			won = search(0);
+		}
+		finally {
+			game = null;
+			if (table != null) table.endSearch(generation);
+		}
+		return won ? SOLVED : (aborted ? UNKNOWN : UNSOLVABLE);
+	}
+
+	//-----------------------------------------------------------------
+	//  Depth-first search; return if position can be won
+	//    (Position is restored on return, unless won.)
+	//-----------------------------------------------------------------
+	boolean search (int depth) {
+		int mark = numMade;
+		applyAutoMoves(game);
+		if (game.isGameWon()) return true;
+		if (isNew(depth)) {
+			if (++nodes > maxNodes || depth >= MAX_DEPTH) {
+				aborted = true;
+			}
+			else {
+				if (moveBufs[depth] == null) 
+					moveBufs[depth] = new int[MAX_NODE_MOVES];
+				int[] moves = moveBufs[depth];
+				int numMoves = generateMoves(game, moves);
+				for (int i = 0; i < numMoves && !aborted; i++) {
+					int childMark = numMade;
+					applyMove(moves[i]);
+					if (search(depth+1)) return true;
+					unmakeTo(childMark);
+				}
+			}
+		}
+		unmakeTo(mark);
+		return false;
+	}
+
+	//-----------------------------------------------------------------
+	//  Note position as seen; return if it was not seen before
+	//-----------------------------------------------------------------
+	boolean isNew (int depth) {
+		if (table == null) return visited.add(game.getHash());
+		return table.add(game.getHash() ^ salt, generation, MAX_DEPTH - depth);
+	}
+
+	//-----------------------------------------------------------------
+	//  Make one move call (must be legal), remembering it
+	//-----------------------------------------------------------------
+	void make (int p1, int p2, int p3) {
+		if (numMade == made.length) {
+			made = Arrays.copyOf(made, 2 * made.length);
+			for (int i = numMade; i < made.length; i++) {
+				made[i] = new Move();
+			}
+		}
+		Move move = made[numMade++];
+		move.set(p1, p2, p3);
+		boolean legal = game.doMove(move);
+		assert(legal);
+	}
+
+	//-----------------------------------------------------------------
+	//  Unmake moves back to given count
+	//-----------------------------------------------------------------
+	void unmakeTo (int mark) {
+		while (numMade > mark) {
+			game.undoMove(made[--numMade]);
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Apply moves that can never hurt: flip table tops, and
+	//  safe cards to foundation (from waste only on draw-1, 
+	//  since on draw-3 it shifts the later deal of the deck)
+	//-----------------------------------------------------------------
+	void applyAutoMoves (GameState game) {
+		boolean moved = true;
+		while (moved) {
+			moved = false;
+			for (int p = GameState.IDX_TABLE; p < GameState.NUM_PILES; p++) {
+				Pile pile = game.getPile(p);
+				if (pile.isEmpty()) continue;
+				if (!CardCode.isFaceUp(pile.getTopCard())) {
+					make(p, p, 0);
+					moved = true;
+				}
+				if (isSafeToFound(game, pile.getTopCard())) {
+					make(p, foundFor(game, pile.getTopCard()), 0);
+					moved = true;
+				}
+			}
+			Pile waste = game.waste();
+			if (game.getcardsDrawn() == 1 && !waste.isEmpty()
+					&& isSafeToFound(game, waste.getTopCard())) {
+				make(GameState.IDX_WASTE, foundFor(game, waste.getTopCard()), 0);
+				moved = true;
+			}
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Is card playable to foundation, and never needed on table?
+	//    (Both opposite-color cards one rank lower already home, and
+	//    the other suit of its color three lower: so nothing that
+	//    could go on it is still out, nor anything that could go on
+	//    those, even allowing moves back off the foundation.)
+	//-----------------------------------------------------------------
+	boolean isSafeToFound (GameState game, int card) {
+		if (foundFor(game, card) < 0) return false;
+		int rank = CardCode.rank(card);
+		if (rank <= 2) return true;
+		for (int suit = 1; suit <= 4; suit++) {
+			if (suit == CardCode.suit(card)) continue;
+			boolean sameColor = CardCode.isBlack(CardCode.make(1, suit, false)) 
+				== CardCode.isBlack(card);
+			if (foundRank(game, suit) < (sameColor ? rank-3 : rank-1)) 
+				return false;
+		}
+		return true;
+	}
+
+	//-----------------------------------------------------------------
+	//  Foundation pile that accepts this card (or -1)
+	//-----------------------------------------------------------------
+	int foundFor (GameState game, int card) {
+		if (!CardCode.isFaceUp(card)) return -1;
+		for (int f = GameState.IDX_FOUND; f < GameState.IDX_TABLE; f++) {
+			if (game.fitsOnFound(card, f)) return f;
+		}
+		return -1;
+	}
+
+	//-----------------------------------------------------------------
+	//  Top rank on foundation of given suit (0 if none)
+	//-----------------------------------------------------------------
+	int foundRank (GameState game, int suit) {
+		for (int f = GameState.IDX_FOUND; f < GameState.IDX_TABLE; f++) {
+			Pile found = game.getPile(f);
+			if (!found.isEmpty() && CardCode.suit(found.getTopCard()) == suit)
+				return CardCode.rank(found.getTopCard());
+		}
+		return 0;
+	}
+
+	//-----------------------------------------------------------------
+	//  Generate candidate moves in rough order of promise
+	//    Prunes table moves that change nothing: whole piles to an
+	//    empty table, inner subpiles unless they free a foundation
+	//    card, all but the first of several empty tables, emptying
+	//    a table when no king could fill it, and aces or twos back 
+	//    off the foundation.
+	//    Deck draws are never moves on their own: each card the 
+	//    waste can reach is one move (draws, then play that card),
+	//    since table moves never depend on the deck.
+	//-----------------------------------------------------------------
+	int generateMoves (GameState game, int[] moves) {
+		int numLegal = game.generateMoves(legal);
+		int n = 0;
+
+		// To foundation from table
+		for (int i = 0; i < numLegal; i++) {
+			int move = legal[i];
+			if (isTable(Move.src(move)) && isFound(Move.dst(move))
+					&& Move.dst(move) == foundFor(game, topOf(game, move))) 
+				moves[n++] = move;
+		}
+
+		// Table to table, turning up a face-down card
+		for (int i = 0; i < numLegal; i++) {
+			int move = legal[i];
+			if (isTable(Move.src(move)) && isTable(Move.dst(move))
+					&& Move.idx(move) > 0 
+					&& Move.idx(move) == firstFaceUp(game.getPile(Move.src(move)))
+					&& isUsefulTarget(game, move, true))
+				moves[n++] = move;
+		}
+
+		// Any card the waste can reach
+		n = addTalonMoves(game, moves, n);
+
+		// Table to table, emptying a pile or freeing a foundation card
+		for (int i = 0; i < numLegal; i++) {
+			int move = legal[i];
+			int src = Move.src(move), idx = Move.idx(move);
+			if (!isTable(src) || !isTable(Move.dst(move))) continue;
+			Pile pile = game.getPile(src);
+			int first = firstFaceUp(pile);
+			if (idx > first && foundFor(game, pile.get(idx-1)) < 0) 
+				continue;
+			if (idx == first && first > 0) 
+				continue;
+			if (idx == 0 && !isKingLoose(game)) 
+				continue;
+			if (isUsefulTarget(game, move, idx > 0))
+				moves[n++] = move;
+		}
+
+		// Foundation back to table
+		for (int i = 0; i < numLegal; i++) {
+			int move = legal[i];
+			if (isFound(Move.src(move)) 
+					&& CardCode.rank(topOf(game, move)) > 2
+					&& isUsefulTarget(game, move, false))
+				moves[n++] = move;
+		}
+		return n;
+	}
+
+	//-----------------------------------------------------------------
+	//  Pile index tests, and top card of move's source pile
+	//-----------------------------------------------------------------
+	static boolean isTable (int p) { return p >= GameState.IDX_TABLE; }
+	static boolean isFound (int p) { 
+		return GameState.IDX_FOUND <= p && p < GameState.IDX_TABLE; 
+	}
+	static int topOf (GameState game, int move) { 
+		return game.getPile(Move.src(move)).getTopCard(); 
+	}
+
+	//-----------------------------------------------------------------
+	//  Is target table of move worth trying?
+	//    Empty tables only if allowed, and only the first of them.
+	//-----------------------------------------------------------------
+	boolean isUsefulTarget (GameState game, int move, boolean toEmpty) {
+		int dst = Move.dst(move);
+		if (!game.getPile(dst).isEmpty()) return true;
+		if (!toEmpty) return false;
+		for (int p = GameState.IDX_TABLE; p < dst; p++) {
+			if (p != Move.src(move) && game.getPile(p).isEmpty()) 
+				return false;
+		}
+		return true;
+	}
+
+	//-----------------------------------------------------------------
+	//  Add moves of each card reachable on top of waste
+	//    Steps through deck actions (draw, or recycle when the deck 
+	//    is empty and a pass remains) on scratch piles: the rest of
+	//    this round, then after one recycle the whole next round
+	//    (on draw-3 it can bring up cards this round does not).
+	//-----------------------------------------------------------------
+	int addTalonMoves (GameState game, int[] moves, int n) {
+		deckScratch.copyFrom(game.deck());
+		wasteScratch.copyFrom(game.waste());
+		int passesLeft = game.getMaxPasses() - game.getPass();
+		boolean recycled = false;
+		for (int actions = 0; ; actions++) {
+			if (!wasteScratch.isEmpty()) {
+				int card = wasteScratch.getTopCard();
+				int f = foundFor(game, card);
+				if (f >= 0) 
+					moves[n++] = encodeMove(GameState.IDX_WASTE, f, 0, actions);
+				n = addWasteToTable(game, card, actions, moves, n);
+			}
+
+			// Next deck action
+			if (!deckScratch.isEmpty()) {
+				for (int i = 0; i < game.getcardsDrawn() && !deckScratch.isEmpty(); i++) {
+					wasteScratch.add(CardCode.faceUp(deckScratch.removeTopCard()));
+				}
+			}
+			else if (!wasteScratch.isEmpty() && passesLeft > 0 && !recycled) {
+				wasteScratch.flipWholePileFaceDown(deckScratch);
+				recycled = true;
+				passesLeft--;
+			}
+			else break;
+		}
+		return n;
+	}
+
+	//-----------------------------------------------------------------
+	//  Add moves of waste card (after given deck actions) to table
+	//-----------------------------------------------------------------
+	int addWasteToTable (GameState game, int card, int actions, 
+			int[] moves, int n) {
+		boolean triedEmpty = false;
+		for (int p = GameState.IDX_TABLE; p < GameState.NUM_PILES; p++) {
+			if (!game.fitsOnTable(card, p)) continue;
+			if (game.getPile(p).isEmpty()) {
+				if (triedEmpty) continue;
+				triedEmpty = true;
+			}
+			moves[n++] = encodeMove(GameState.IDX_WASTE, p, 0, actions);
+		}
+		return n;
+	}
+
+	//-----------------------------------------------------------------
+	//  Is any king off the bottom of a table pile (and not home)?
+	//    If not, an empty table could never be used.
+	//-----------------------------------------------------------------
+	boolean isKingLoose (GameState game) {
+		for (int p = 0; p < GameState.NUM_PILES; p++) {
+			if (p == GameState.IDX_FOUND) p = GameState.IDX_TABLE;
+			Pile pile = game.getPile(p);
+			int start = (p >= GameState.IDX_TABLE ? 1 : 0);
+			for (int i = start; i < pile.size(); i++) {
+				if (CardCode.rank(pile.get(i)) == 13) return true;
+			}
+		}
+		return false;
+	}
+
+	//-----------------------------------------------------------------
+	//  Index of first face-up card in table pile (top is face up)
+	//-----------------------------------------------------------------
+	static int firstFaceUp (Pile pile) {
+		int i = pile.size()-1;
+		while (i > 0 && CardCode.isFaceUp(pile.get(i-1))) i--;
+		return i;
+	}
+
+	//-----------------------------------------------------------------
+	//  Make encoded move (deck actions first, then the card move)
+	//-----------------------------------------------------------------
+	void applyMove (int move) {
+		for (int i = 0; i < moveActions(move); i++) {
+			if (game.deck().isEmpty())
+				make(GameState.IDX_WASTE, GameState.IDX_DECK, 0);
+			else 
+				make(GameState.IDX_DECK, GameState.IDX_WASTE, 0);
+		}
+		make(Move.src(move), Move.dst(move), Move.idx(move));
+	}
+
+	//-----------------------------------------------------------------
+	//  Move encoding: Move.encode() plus deck actions in top bits
+	//-----------------------------------------------------------------
+	static int encodeMove (int src, int dst, int idx, int actions) {
+		return Move.encode(src, dst, idx) | (actions << 24);
+	}
+	static int moveActions (int move) { return move >>> 24; }
+}
@@ -0,0 +1,109 @@
+//********************************************************************
+//  TestSolveCache.java              @version 1.00
+//    Checks for the solve cache file: results kept across opens,
+//    and files whose header does not match this build (old format,
+//    other solver version, other Zobrist keys) refused.
+//    Run: java TestSolveCache (exit status 1 on failure)
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+import java.io.*;
+
+public class TestSolveCache {
+
+	//-----------------------------------------------------------------
+	//  Fields
+	//-----------------------------------------------------------------
+	int failures = 0;
+
+	//-----------------------------------------------------------------
+	//  Note failure unless condition holds
+	//-----------------------------------------------------------------
+	void check (boolean condition, String name) {
+		if (!condition) {
+			System.out.println("FAIL: " + name);
+			failures++;
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  New empty temporary file
+	//-----------------------------------------------------------------
+	static File tempFile () throws IOException {
+		File file = File.createTempFile("solvecache", ".ksc");
+		file.deleteOnExit();
+		return file;
+	}
+
+	//-----------------------------------------------------------------
+	//  Write a cache header with given fields (and no records)
+	//-----------------------------------------------------------------
+	static File writeHeader (int magic, int version, long fingerprint)
+			throws IOException {
+		File file = tempFile();
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+		out.writeInt(magic);
+		out.writeInt(version);
+		out.writeLong(fingerprint);
+		out.close();
+		return file;
+	}
+
+	//-----------------------------------------------------------------
+	//  Does opening file fail?
+	//-----------------------------------------------------------------
+	static boolean isRefused (File file) {
+		SolveCache cache = new SolveCache();
+		try {
+			cache.open(file.getPath());
+			cache.close();
+			return false;
+		}
+		catch (IOException exception) {
+			return true;
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Result put is found again after reopening
+	//-----------------------------------------------------------------
+	void testReopen () throws IOException {
+		File file = tempFile();
+		file.delete();
+		GameState deal = new GameState(3, 3);
+		deal.setupNewGame(GameState.gameSeed(2012, 0));
+		SolveCache cache = new SolveCache();
+		cache.open(file.getPath());
+		cache.put(deal, Solver.SOLVED, 100, 1000);
+		cache.close();
+		cache = new SolveCache();
+		cache.open(file.getPath());
+		check(cache.lookup(deal, 1000) == Solver.SOLVED, "result kept across opens");
+		cache.close();
+	}
+
+	//-----------------------------------------------------------------
+	//  Mismatched headers are refused; a matching one is not
+	//-----------------------------------------------------------------
+	void testHeaders () throws IOException {
+		int magic = SolveCache.MAGIC, version = Solver.VERSION;
+		long keys = Zobrist.fingerprint();
+		check(!isRefused(writeHeader(magic, version, keys)), "matching header opens");
+		check(isRefused(writeHeader(magic, version + 1, keys)), "other solver version refused");
+		check(isRefused(writeHeader(magic, version, keys + 1)), "other Zobrist keys refused");
+		check(isRefused(writeHeader(0x4B534331, version, keys)), "old format refused");
+	}
+
+	//-----------------------------------------------------------------
+	//  Main test function
+	//-----------------------------------------------------------------
+	public static void main (String[] args) throws IOException {
+		TestSolveCache test = new TestSolveCache();
+		test.testReopen();
+		test.testHeaders();
+		System.out.println(test.failures == 0 ? "TestSolveCache: OK"
+			: "TestSolveCache: " + test.failures + " failures");
+		if (test.failures > 0) System.exit(1);
+	}
+}
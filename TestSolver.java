@@ -0,0 +1,67 @@
+//********************************************************************
+//  TestSolver.java              @version 1.00
+//    Soundness check for the solver: no deal the greedy player
+//    wins may come back UNSOLVABLE (any pruning that cuts a real
+//    solution shows up here). Checks some known deals, then a
+//    sweep of deals under each ruleset.
+//    Run: java TestSolver [games] (exit status 1 on failure)
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+public class TestSolver {
+
+	//-----------------------------------------------------------------
+	//  Constants
+	//-----------------------------------------------------------------
+	static final long MASTER_SEED = 11;
+	static final long MAX_NODES = 20000;
+	static final int INF = RunConfig.INF;
+	static final int[][] RULES = {{1, 1}, {3, 3}, {3, INF}, {1, INF}};
+
+	// Deals once cut short by the talon walk (draw 3, unlimited passes)
+	static final int[] KNOWN_DEALS = {766, 1515, 2575, 2702};
+
+	//-----------------------------------------------------------------
+	//  Fields
+	//-----------------------------------------------------------------
+	final GameServer server = new GameServer();
+	final Solver solver = new Solver(MAX_NODES, null);
+	int failures = 0;
+
+	//-----------------------------------------------------------------
+	//  Check one deal: if greedy wins it, solver must not say no
+	//-----------------------------------------------------------------
+	void checkDeal (int cardsDrawn, int maxPasses, int gameNum) {
+		long seed = GameState.gameSeed(MASTER_SEED, gameNum);
+		GameState deal = new GameState(cardsDrawn, maxPasses);
+		deal.setupNewGame(seed);
+		int result = solver.solve(deal);
+		if (result == Solver.UNSOLVABLE
+				&& server.runOneGame(cardsDrawn, maxPasses, seed)) {
+			System.out.println("FAIL: " + GameServer.ruleName(cardsDrawn, maxPasses)
+				+ " deal " + gameNum + " won by greedy, solver says unsolvable"
+				+ " (" + solver.getNodes() + " nodes)");
+			failures++;
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Main test function
+	//-----------------------------------------------------------------
+	public static void main (String[] args) {
+		int numGames = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		TestSolver test = new TestSolver();
+		for (int gameNum: KNOWN_DEALS) {
+			test.checkDeal(3, INF, gameNum);
+		}
+		for (int[] rule: RULES) {
+			for (int i = 0; i < numGames; i++) {
+				test.checkDeal(rule[0], rule[1], i);
+			}
+		}
+		System.out.println(test.failures == 0 ? "TestSolver: OK"
+			: "TestSolver: " + test.failures + " failures");
+		if (test.failures > 0) System.exit(1);
+	}
+}
@@ -0,0 +1,216 @@
+//********************************************************************
+//  TranspositionTable.java              @version 1.01
+//    Fixed-size table of positions seen, off the Java heap (direct
+//    buffers), shared by any number of search threads without locks.
+//    Each entry is two longs: key xor data, and data. A reader
+//    accepts an entry only if the two words give back its key, so
+//    a torn entry (two writers at once) reads as a miss, never as
+//    a wrong hit. Writers claim a slot by CAS on its data word.
+//    Each search has its own generation, kept in its entries; once
+//    a search ends, its entries are dead. Entries are kept in
+//    buckets of four; a new entry replaces an empty or dead one if
+//    any, else the live one of least depth.
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TranspositionTable {
+
+	//-----------------------------------------------------------------
+	//  Constants
+	//    Data word: generation (32 bits), depth (16), value (8),
+	//    spare (8). Generations start at 1, so zero data marks an
+	//    empty entry.
+	//-----------------------------------------------------------------
+	static final int ENTRY_BYTES = 16;
+	static final int BUCKET_ENTRIES = 4;      // One cache line
+	static final int BUCKET_BYTES = ENTRY_BYTES * BUCKET_ENTRIES;
+	static final int SEGMENT_SHIFT = 30;      // 1 GB per buffer
+	static final int MAX_DEPTH = 0xFFFF;
+	public static final long NONE = 0;        // Probe result if absent
+
+	static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(
+		long[].class, ByteOrder.nativeOrder());
+
+	//-----------------------------------------------------------------
+	//  Fields
+	//-----------------------------------------------------------------
+	final ByteBuffer[] segments;
+	final long numBuckets;        // Power of two
+	final int bucketsPerSegment;  // Power of two
+	final AtomicInteger lastGeneration = new AtomicInteger();
+	volatile int[] liveGenerations = new int[0];  // Copied on change
+
+	//-----------------------------------------------------------------
+	//  Constructor (size in gigabytes, rounded down to a power of two
+	//  of buckets; at least one bucket)
+	//-----------------------------------------------------------------
+	public TranspositionTable (double gigabytes) {
+		long bytes = (long) (gigabytes * (1L << 30));
+		long buckets = Long.highestOneBit(Math.max(1, bytes / BUCKET_BYTES));
+		numBuckets = buckets;
+		bucketsPerSegment = (int) Math.min(buckets, (1L << SEGMENT_SHIFT) / BUCKET_BYTES);
+		segments = new ByteBuffer[(int) (buckets / bucketsPerSegment)];
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = ByteBuffer.allocateDirect(bucketsPerSegment * BUCKET_BYTES)
+				.order(ByteOrder.nativeOrder());
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Accessors
+	//-----------------------------------------------------------------
+	public long capacity () { return numBuckets * BUCKET_ENTRIES; }
+	public long sizeBytes () { return numBuckets * BUCKET_BYTES; }
+
+	//-----------------------------------------------------------------
+	//  Start a search; return its generation (new, never zero)
+	//-----------------------------------------------------------------
+	public int beginSearch () {
+		int generation;
+		do {
+			generation = lastGeneration.incrementAndGet();
+		} while (generation == 0);
+		synchronized (this) {
+			int[] live = Arrays.copyOf(liveGenerations, liveGenerations.length + 1);
+			live[live.length-1] = generation;
+			liveGenerations = live;
+		}
+		return generation;
+	}
+
+	//-----------------------------------------------------------------
+	//  End a search (its entries may then be replaced first)
+	//-----------------------------------------------------------------
+	public synchronized void endSearch (int generation) {
+		int[] old = liveGenerations;
+		int[] live = new int[old.length];
+		int n = 0;
+		for (int g: old) {
+			if (g != generation) live[n++] = g;
+		}
+		liveGenerations = Arrays.copyOf(live, n);
+	}
+
+	//-----------------------------------------------------------------
+	//  Is generation that of a search not yet ended?
+	//-----------------------------------------------------------------
+	boolean isLive (int generation) {
+		for (int g: liveGenerations) {
+			if (g == generation) return true;
+		}
+		return false;
+	}
+
+	//-----------------------------------------------------------------
+	//  Data word fields
+	//-----------------------------------------------------------------
+	public static long makeData (int generation, int depth, int value) {
+		return (long) generation << 32
+			| (long) Math.max(0, Math.min(depth, MAX_DEPTH)) << 16
+			| (long) (value & 0xFF) << 8;
+	}
+	public static int generation (long data) { return (int) (data >>> 32); }
+	public static int depth (long data) { return (int) (data >>> 16) & 0xFFFF; }
+	public static int value (long data) { return (int) (data >>> 8) & 0xFF; }
+
+	//-----------------------------------------------------------------
+	//  Data stored for key, or NONE
+	//-----------------------------------------------------------------
+	public long probe (long key) {
+		ByteBuffer segment = segment(key);
+		int base = bucketOffset(key);
+		for (int e = 0; e < BUCKET_ENTRIES; e++) {
+			int at = base + e * ENTRY_BYTES;
+			long data = (long) LONGS.getVolatile(segment, at + 8);
+			if (data != NONE
+					&& ((long) LONGS.getVolatile(segment, at) ^ data) == key)
+				return data;
+		}
+		return NONE;
+	}
+
+	//-----------------------------------------------------------------
+	//  Store data for key (of a live search)
+	//    Replaces, in order: the key's own entry, an empty one, one
+	//    of an ended search, else the live one of least depth.
+	//    Lock-free: if another thread takes the slot first, tries
+	//    again; an entry may then be lost, but never corrupted.
+	//-----------------------------------------------------------------
+	public void store (long key, long data) {
+		ByteBuffer segment = segment(key);
+		int base = bucketOffset(key);
+		int mine = generation(data);
+		while (true) {
+			int victim = -1, worst = Integer.MAX_VALUE;
+			long victimData = NONE;
+			for (int e = 0; e < BUCKET_ENTRIES; e++) {
+				int at = base + e * ENTRY_BYTES;
+				long old = (long) LONGS.getVolatile(segment, at + 8);
+				int score;
+				if (old != NONE
+						&& ((long) LONGS.getVolatile(segment, at) ^ old) == key)
+					score = -3;
+				else if (old == NONE)
+					score = -2;
+				else if (generation(old) != mine && !isLive(generation(old)))
+					score = -1;
+				else
+					score = depth(old);
+				if (score < worst) {
+					worst = score;
+					victim = at;
+					victimData = old;
+				}
+			}
+			if (LONGS.compareAndSet(segment, victim + 8, victimData, data)) {
+				LONGS.setVolatile(segment, victim, key ^ data);
+				return;
+			}
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Add key for search of given generation if absent (as a set);
+	//  return true if it was added
+	//    (Two threads adding the same key at once may both see
+	//    it as new; searches sharing keys must allow for that.)
+	//-----------------------------------------------------------------
+	public boolean add (long key, int generation, int depth) {
+		if (probe(key) != NONE) return false;
+		store(key, makeData(generation, depth, 0));
+		return true;
+	}
+
+	//-----------------------------------------------------------------
+	//  Empty the whole table
+	//-----------------------------------------------------------------
+	public void clear () {
+		for (ByteBuffer segment: segments) {
+			for (int at = 0; at < segment.capacity(); at += 8) {
+				LONGS.setVolatile(segment, at, 0L);
+			}
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  Buffer and byte offset of key's bucket
+	//    (Low key bits pick the bucket; all 64 are checked.)
+	//-----------------------------------------------------------------
+	ByteBuffer segment (long key) {
+		long bucket = key & (numBuckets - 1);
+		return segments[(int) (bucket / bucketsPerSegment)];
+	}
+
+	int bucketOffset (long key) {
+		long bucket = key & (numBuckets - 1);
+		return (int) (bucket & (bucketsPerSegment - 1)) * BUCKET_BYTES;
+	}
+}
@@ -0,0 +1,14 @@
+import java.io.*; 
+
+//********************************************************************
+//  ViewerNull.java              @version 1.00
+//    Viewer that shows nothing (for runs with viewing off).
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+public class ViewerNull implements ViewerInterface {
+	public void open () throws IOException {}
+	public void update (GameState gs) {}
+	public void close () {}
+}
@@ -0,0 +1,85 @@
+import java.util.SplittableRandom;
+
+//********************************************************************
+//  Zobrist.java              @version 1.03
+//    Zobrist hash keys for full (unscrubbed) game positions.
+//  Copyright (c) 2012 Daniel R. Collins. All rights reserved.
+//  See the bottom of this file for any licensing information.
+//********************************************************************
+
+public final class Zobrist {
+
+	//-----------------------------------------------------------------
+	//  Key table: one key per (card, pile, position, face-up)
+	//    No pile ever holds more than 24 cards (the starting deck).
+	//-----------------------------------------------------------------
+	static final int MAX_POS = 24;
+	static final long[] CARD_KEYS = 
+		new long[CardCode.NUM_CARDS * GameState.NUM_PILES * MAX_POS * 2];
+	static final long PASS_KEY = 0x5851F42D4C957F2DL;
+
+	static {
+		SplittableRandom random = new SplittableRandom(0x2012L);
+		for (int i = 0; i < CARD_KEYS.length; i++) {
+			CARD_KEYS[i] = random.nextLong();
+		}
+	}
+
+	//-----------------------------------------------------------------
+	//  No instances
+	//-----------------------------------------------------------------
+	private Zobrist () {}
+
+	//-----------------------------------------------------------------
+	//  Key for card code at pile and position
+	//-----------------------------------------------------------------
+	public static long cardKey (int card, int pile, int pos) {
+		assert(pos < MAX_POS);
+		int i = (CardCode.index(card) * GameState.NUM_PILES + pile) * MAX_POS + pos;
+		return CARD_KEYS[2 * i + (CardCode.isFaceUp(card) ? 1 : 0)];
+	}
+
+	//-----------------------------------------------------------------
+	//  Key for pass number
+	//    With unlimited passes the pass count cannot matter, except 
+	//    that the deck is unseen on the first pass; so only first 
+	//    or later is kept (positions repeat across later passes).
+	//-----------------------------------------------------------------
+	public static long passKey (int pass, int maxPasses) {
+		if (maxPasses == Integer.MAX_VALUE) pass = Math.min(pass, 2);
+		long z = pass * PASS_KEY;
+		z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+		return z ^ (z >>> 33);
+	}
+
+	//-----------------------------------------------------------------
+	//  Fingerprint of the keys (same keys, same value), so files of
+	//  hashes can tell if they were made under other keys
+	//-----------------------------------------------------------------
+	public static long fingerprint () {
+		long h = 0;
+		for (long key: CARD_KEYS) {
+			h = (h ^ key) * 0x9E3779B97F4A7C15L;
+		}
+		for (int pass = 1; pass <= 3; pass++) {
+			h = (h ^ passKey(pass, 3) ^ passKey(pass, Integer.MAX_VALUE)) 
+				* 0x9E3779B97F4A7C15L;
+		}
+		return h ^ (h >>> 29);
+	}
+
+	//-----------------------------------------------------------------
+	//  Hash of whole position (all 13 piles plus pass)
+	//    O(52); GameState keeps the same value incrementally.
+	//-----------------------------------------------------------------
+	public static long hash (GameState game) {
+		long h = passKey(game.getPass(), game.getMaxPasses());
+		for (int p = 0; p < GameState.NUM_PILES; p++) {
+			Pile pile = game.getPile(p);
+			for (int i = 0; i < pile.size(); i++) {
+				h ^= cardKey(pile.get(i), p, i);
+			}
+		}
+		return h;
+	}
+}